@@ -0,0 +1,98 @@
+package group1;
+
+import group1.bench.TemplateDomain;
+import group1.bench.VirtualTimeLine;
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.Deadline;
+import genius.core.DeadlineType;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.Offer;
+import genius.core.parties.NegotiationInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-round path of the agent: choosing an action, and generating a bid above the target utility,
+ * after an opponent history of a given size was received. Lives in the agent's package to reach
+ * generateBidAboveTarget.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentBenchmark {
+
+    private static final int ROUNDS = 1000;
+
+    @Param({ "party", "energy", "smart-grid", "triangular-fight" })
+    public String domain;
+
+    @Param({ "10", "100", "1000" })
+    public int historySize;
+
+    @Param({ "0.5", "0.95" })
+    public double time;
+
+    private Agent1 agent;
+    private List<Class<? extends Action>> possibleActions;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        System.setProperty("group1.store", "none"); // measure cold sessions
+
+        TemplateDomain templateDomain = TemplateDomain.named(this.domain);
+        VirtualTimeLine timeLine = new VirtualTimeLine(ROUNDS);
+
+        this.agent = new Agent1();
+        this.agent.init(new NegotiationInfo(templateDomain.getUtilitySpace(), null, null,
+                new Deadline(ROUNDS, DeadlineType.ROUND), timeLine, 0, new AgentID("Agent1"), null));
+
+        AgentID opponent = new AgentID("Opponent");
+        Random random = new Random(this.historySize);
+
+        for (int i = 0; i < this.historySize; i++) {
+            this.agent.receiveMessage(opponent, new Offer(opponent, templateDomain.getDomain().getRandomBid(random)));
+        }
+        timeLine.setTime(this.time);
+
+        this.possibleActions = new ArrayList<Class<? extends Action>>();
+        this.possibleActions.add(Accept.class);
+        this.possibleActions.add(Offer.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.agent.negotiationEnded(null);
+    }
+
+    @Benchmark
+    public Action chooseAction() {
+        return this.agent.chooseAction(this.possibleActions);
+    }
+
+    @Benchmark
+    public Bid generateBidAboveTarget() {
+        return this.agent.generateBidAboveTarget();
+    }
+}
@@ -0,0 +1,110 @@
+package group1.bench;
+
+import group1.BatchEvaluator;
+import group1.BidEncoder;
+import group1.CandidatePool;
+import group1.OpponentModel;
+import group1.OpponentUtilities;
+import group1.ScalarBatchEvaluator;
+import group1.UtilityTable;
+import genius.core.Bid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring a pool of random candidates (our utility, opponent utility and Nash product of each) in one batch,
+ * against scoring them one Bid at a time as the agent used to (encode, then look up both utilities).
+ * The batch evaluator is the scalar one, or the one BatchEvaluator.create picks: the Vector API kernel
+ * when the benchmarks are built with the vector profile and run with --add-modules jdk.incubator.vector.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchEvaluationBenchmark {
+
+    private static final int HISTORY_SIZE = 200; // opponent bids the opponent model is built from
+
+    @Param({ "party", "energy", "smart-grid" })
+    public String domain;
+
+    @Param({ "1000", "100000" })
+    public int candidates;
+
+    @Param({ "scalar", "preferred" })
+    public String evaluator;
+
+    private BidEncoder encoder;
+    private UtilityTable utilityTable;
+    private OpponentModel opponentModel;
+    private OpponentUtilities opponentUtilities;
+    private Bid[] bids;
+    private CandidatePool candidatePool;
+    private BatchEvaluator batchEvaluator;
+    private double[] utilities;
+    private double[] opponentUtilityProducts;
+    private double[] nashProducts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        TemplateDomain templateDomain = TemplateDomain.named(this.domain);
+        Random random = new Random(this.candidates);
+
+        this.encoder = new BidEncoder(templateDomain.getDomain());
+        this.utilityTable = UtilityTable.fromUtilitySpace(this.encoder, templateDomain.getUtilitySpace());
+        this.opponentModel = new OpponentModel(this.encoder);
+
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            this.opponentModel.addBid(templateDomain.getDomain().getRandomBid(random));
+        }
+        this.opponentUtilities = OpponentUtilities.of(Collections.singletonList(this.opponentModel), null);
+
+        this.bids = new Bid[this.candidates];
+        this.candidatePool = new CandidatePool(this.encoder.getIssueCount(), this.candidates);
+
+        for (int c = 0; c < this.candidates; c++) {
+            this.bids[c] = templateDomain.getDomain().getRandomBid(random);
+            this.candidatePool.add(this.encoder.encode(this.bids[c]));
+        }
+
+        this.batchEvaluator = "scalar".equals(this.evaluator) ? new ScalarBatchEvaluator() : BatchEvaluator.create();
+        this.utilities = new double[this.candidates];
+        this.opponentUtilityProducts = new double[this.candidates];
+        this.nashProducts = new double[this.candidates];
+    }
+
+    @Benchmark
+    public double[] batch() {
+
+        this.batchEvaluator.evaluate(this.candidatePool, this.utilityTable, this.opponentUtilities,
+                this.utilities, this.opponentUtilityProducts, this.nashProducts);
+        return this.nashProducts;
+    }
+
+    @Benchmark
+    public double[] perBid() {
+
+        for (int c = 0; c < this.candidates; c++) {
+            int[] encodedBid = this.encoder.encode(this.bids[c]);
+            this.nashProducts[c] = this.utilityTable.getUtility(encodedBid) * this.opponentModel.getOpponentUtility(encodedBid);
+        }
+        return this.nashProducts;
+    }
+}
@@ -0,0 +1,166 @@
+package group1.bench;
+
+import group1.BidEncoder;
+import group1.RankingLinearProgram;
+import group1.RankingSolver;
+
+import java.util.Arrays;
+
+/**
+ * Reference solver for the ranking program: a textbook two-phase primal simplex on a dense tableau
+ * with Bland's rule, sharing nothing with SimplexRankingSolver (which solves the dual with bounded
+ * variables, partial pricing and a warm start). Pure Java, so SolverBenchmark can check the optimal
+ * objective without the native solver pack; the tableau is dense, so it is only meant for small rankings.
+ *
+ * Every comparison row  row_j x + s_j - t_j = 0  starts with its slack s_j basic at zero; the two
+ * rows pinning the maximal and minimal bid get an artificial column, which the first phase drives out.
+ */
+public class DenseRankingSolver implements RankingSolver {
+
+    private static final double TOLERANCE = 1e-9;
+    private static final double PIVOT_TOLERANCE = 1e-7; // smaller pivots let rounding errors break Bland's rule
+
+    private int rows;
+    private int columns; // value variables, slacks s, surpluses t, two artificials; the right-hand side follows
+    private double[][] tableau;
+    private int[] basis;
+
+    @Override
+    public double[] solve(RankingLinearProgram problem) {
+
+        BidEncoder encoder = problem.getEncoder();
+        int variables = problem.getVariableCount();
+        int comparisons = problem.getComparisonCount();
+        int artificial = variables + 2 * comparisons;
+
+        this.rows = comparisons + 2;
+        this.columns = artificial + 2;
+        this.tableau = new double[this.rows][this.columns + 1];
+        this.basis = new int[this.rows];
+
+        for (int j = 0; j < comparisons; j++) {
+            for (int k = problem.getRowStart(j); k < problem.getRowEnd(j); k++) {
+                this.tableau[j][problem.getColumn(k)] += problem.getCoefficient(k);
+            }
+            this.tableau[j][variables + j] = 1.0;
+            this.tableau[j][variables + comparisons + j] = -1.0;
+            this.basis[j] = variables + j;
+        }
+        pin(comparisons, encoder, problem.getMaximalBid(), problem.getHighUtility(), artificial);
+        pin(comparisons + 1, encoder, problem.getMinimalBid(), problem.getLowUtility(), artificial + 1);
+
+        // Phase one: minimise the artificials
+        double[] cost = new double[this.columns];
+        cost[artificial] = 1.0;
+        cost[artificial + 1] = 1.0;
+        optimise(cost, this.columns);
+
+        for (int r = 0; r < this.rows; r++) {
+            if (this.basis[r] >= artificial && this.tableau[r][this.columns] > TOLERANCE)
+                throw new IllegalStateException("The ranking program is infeasible");
+        }
+        driveOutArtificials(artificial);
+
+        // Phase two: minimise the slacks, never letting an artificial back in
+        cost = new double[this.columns];
+        for (int j = 0; j < comparisons; j++) { cost[variables + j] = 1.0; }
+        optimise(cost, artificial);
+
+        double[] solution = new double[variables];
+        for (int r = 0; r < this.rows; r++) {
+            if (this.basis[r] < variables)
+                solution[this.basis[r]] = this.tableau[r][this.columns];
+        }
+        return solution;
+    }
+
+    /**
+     * Fill the row fixing the utility of a bid, with its artificial column basic.
+     */
+    private void pin(int row, BidEncoder encoder, int[] bid, double utility, int artificialColumn) {
+
+        double sign = utility < 0.0 ? -1.0 : 1.0; // keep the right-hand side non-negative
+        for (int i = 0; i < bid.length; i++) { this.tableau[row][encoder.getOffset(i) + bid[i]] += sign; }
+        this.tableau[row][this.columns] = sign * utility;
+        this.tableau[row][artificialColumn] = 1.0;
+        this.basis[row] = artificialColumn;
+    }
+
+    /**
+     * Pivot with Bland's rule (lowest improving column, lowest leaving basic column) until optimal.
+     *
+     * @param cost The objective to minimise
+     * @param enterable The columns below this index may enter the basis
+     */
+    private void optimise(double[] cost, int enterable) {
+
+        double[] prices = new double[this.columns];
+
+        while (true) {
+            Arrays.fill(prices, 0.0);
+            for (int r = 0; r < this.rows; r++) {
+                double basicCost = cost[this.basis[r]];
+                if (basicCost == 0.0)
+                    continue;
+                for (int k = 0; k < this.columns; k++) { prices[k] += basicCost * this.tableau[r][k]; }
+            }
+
+            int entering = -1;
+            for (int k = 0; k < enterable && entering < 0; k++) {
+                if (cost[k] - prices[k] < -TOLERANCE)
+                    entering = k;
+            }
+            if (entering < 0)
+                return;
+
+            int leaving = -1;
+            double bestRatio = Double.POSITIVE_INFINITY;
+            for (int r = 0; r < this.rows; r++) {
+                if (this.tableau[r][entering] <= PIVOT_TOLERANCE)
+                    continue;
+                double ratio = this.tableau[r][this.columns] / this.tableau[r][entering];
+                if (ratio < bestRatio - TOLERANCE || (ratio <= bestRatio + TOLERANCE && this.basis[r] < this.basis[leaving])) {
+                    bestRatio = Math.min(bestRatio, ratio);
+                    leaving = r;
+                }
+            }
+            if (leaving < 0)
+                throw new IllegalStateException("The ranking program is unbounded");
+
+            pivot(leaving, entering);
+        }
+    }
+
+    /**
+     * Replace the artificials left basic (at zero) after the first phase, where their row allows it.
+     */
+    private void driveOutArtificials(int artificial) {
+
+        for (int r = 0; r < this.rows; r++) {
+            if (this.basis[r] < artificial)
+                continue;
+            for (int k = 0; k < artificial; k++) {
+                if (Math.abs(this.tableau[r][k]) > TOLERANCE) {
+                    pivot(r, k);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void pivot(int leaving, int entering) {
+
+        double[] pivotRow = this.tableau[leaving];
+        double pivotElement = pivotRow[entering];
+        for (int k = 0; k <= this.columns; k++) { pivotRow[k] /= pivotElement; }
+
+        for (int r = 0; r < this.rows; r++) {
+            double factor = this.tableau[r][entering];
+            if (r == leaving || factor == 0.0)
+                continue;
+            double[] row = this.tableau[r];
+            for (int k = 0; k <= this.columns; k++) { row[k] -= factor * pivotRow[k]; }
+        }
+        this.basis[leaving] = entering;
+    }
+}
@@ -0,0 +1,59 @@
+package group1.bench;
+
+import group1.LinearProgrammingEstimation;
+import group1.StreamingRankingEstimation;
+import genius.core.uncertainty.BidRanking;
+import genius.core.utility.AbstractUtilitySpace;
+
+import java.util.Random;
+
+/**
+ * Compares the streaming ranking learner with the ranking LP on the etc/templates domains:
+ * estimation time, agreement with the profile, and agreement with the LP estimate (on random bid pairs).
+ *
+ * Usage: EstimationBenchmark [name domain.xml profile.xml]...
+ * Run from the repository root.
+ */
+public class EstimationBenchmark {
+
+    private static final int[] RANKING_SIZES = { 100, 1000, 3000 };
+    private static final int REPETITIONS = 3;
+    private static final int AGREEMENT_PAIRS = 10000;
+
+    public static void main(String[] args) throws Exception {
+
+        System.out.println("domain,ranking,lp_ms,streaming_ms,lp_agreement,streaming_agreement,streaming_vs_lp");
+
+        for (TemplateDomain domain : TemplateDomain.load(args)) {
+            for (int size : RANKING_SIZES) {
+                long linearProgramNanos = 0;
+                long streamingNanos = 0;
+                double linearProgramAgreement = 0.0;
+                double streamingAgreement = 0.0;
+                double mutualAgreement = 0.0;
+                Random random = new Random(size);
+
+                for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+                    BidRanking ranking = domain.randomRanking(size, random);
+
+                    long start = System.nanoTime();
+                    AbstractUtilitySpace linearProgram = new LinearProgrammingEstimation(domain.getDomain(), ranking)
+                            .Estimation().getUtilitySpace();
+                    linearProgramNanos += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    AbstractUtilitySpace streaming = new StreamingRankingEstimation(domain.getDomain(), ranking)
+                            .Estimation().getUtilitySpace();
+                    streamingNanos += System.nanoTime() - start;
+
+                    linearProgramAgreement += domain.rankingAgreement(linearProgram, AGREEMENT_PAIRS, random);
+                    streamingAgreement += domain.rankingAgreement(streaming, AGREEMENT_PAIRS, random);
+                    mutualAgreement += domain.rankingAgreement(linearProgram, streaming, AGREEMENT_PAIRS, random);
+                }
+                System.out.printf("%s,%d,%.2f,%.2f,%.4f,%.4f,%.4f%n", domain.getName(), size,
+                        linearProgramNanos / 1e6 / REPETITIONS, streamingNanos / 1e6 / REPETITIONS,
+                        linearProgramAgreement / REPETITIONS, streamingAgreement / REPETITIONS, mutualAgreement / REPETITIONS);
+            }
+        }
+    }
+}
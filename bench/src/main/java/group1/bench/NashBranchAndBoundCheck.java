@@ -0,0 +1,132 @@
+package group1.bench;
+
+import group1.BidEncoder;
+import group1.NashBranchAndBound;
+import group1.OpponentUtilities;
+import group1.UtilityTable;
+
+import java.util.SplittableRandom;
+
+/**
+ * Checks that NashBranchAndBound finds the bid with the highest Nash product above the target, by comparing
+ * it with an enumeration of all bids, for zero to three random opponent utility tables and targets from 0 to 1.
+ * Domains with more than MAX_OUTCOMES bids are skipped. Exits with status 1 on a mismatch.
+ *
+ * Usage: NashBranchAndBoundCheck [name domain.xml profile.xml]...
+ * Run from the repository root.
+ */
+public class NashBranchAndBoundCheck {
+
+    private static final long MAX_OUTCOMES = 1000000;
+    private static final int MAX_OPPONENTS = 3;
+    private static final double TARGET_STEP = 0.1;
+    private static final double EPSILON = 1e-12; // the rounding tolerance of the search
+    private static final long BUDGETED_NODES = 50;
+
+    public static void main(String[] args) throws Exception {
+
+        boolean match = true;
+        System.out.println("domain,opponents,target,nodes,outcomes,ms,match");
+
+        for (TemplateDomain domain : TemplateDomain.load(args)) {
+            BidEncoder encoder = new BidEncoder(domain.getDomain());
+            long outcomes = 1;
+            for (int i = 0; i < encoder.getIssueCount(); i++) { outcomes *= encoder.getValueCount(i); }
+            if (outcomes > MAX_OUTCOMES) {
+                System.err.println("Skipping " + domain.getName() + ": " + outcomes + " bids");
+                continue;
+            }
+
+            UtilityTable utilityTable = UtilityTable.fromUtilitySpace(encoder, domain.getUtilitySpace());
+            NashBranchAndBound search = new NashBranchAndBound(Long.MAX_VALUE);
+            SplittableRandom random = new SplittableRandom(7);
+
+            for (int opponents = 0; opponents <= MAX_OPPONENTS; opponents++) {
+                OpponentUtilities opponentUtilities = randomOpponents(encoder, opponents, random);
+
+                for (int step = 0; step * TARGET_STEP <= 1.0 + EPSILON; step++) {
+                    double target = step * TARGET_STEP;
+                    int[] bid = new int[encoder.getIssueCount()];
+
+                    long start = System.nanoTime();
+                    double nashProduct = search.search(utilityTable, opponentUtilities, target, Long.MAX_VALUE, bid);
+                    long nanos = System.nanoTime() - start;
+
+                    double best = enumerate(encoder, utilityTable, opponentUtilities, target);
+                    double utility = utilityTable.getUtility(bid);
+                    double product = utility * opponentUtilities.getUtility(bid);
+                    boolean same = search.isComplete() && Math.abs(product - best) <= EPSILON
+                            && Math.abs(nashProduct - product) <= EPSILON
+                            && utility >= Math.min(target, maxUtility(encoder, utilityTable)) - EPSILON;
+                    match &= same;
+
+                    System.out.printf("%s,%d,%.1f,%d,%d,%.3f,%b%n", domain.getName(), opponents, target,
+                            search.getNodeCount(), outcomes, nanos / 1e6, same);
+                }
+            }
+
+            // A budgeted search must still return a bid above the target
+            NashBranchAndBound budgeted = new NashBranchAndBound(BUDGETED_NODES);
+            int[] bid = new int[encoder.getIssueCount()];
+            budgeted.search(utilityTable, randomOpponents(encoder, 1, random), 0.5, Long.MAX_VALUE, bid);
+            boolean above = utilityTable.getUtility(bid) >= Math.min(0.5, maxUtility(encoder, utilityTable)) - EPSILON;
+            match &= above;
+            System.out.printf("%s,budgeted,0.5,%d,%d,,%b%n", domain.getName(), budgeted.getNodeCount(), outcomes, above);
+        }
+
+        if (!match)
+            System.exit(1);
+    }
+
+    private static OpponentUtilities randomOpponents(BidEncoder encoder, int count, SplittableRandom random) {
+
+        UtilityTable[] tables = new UtilityTable[count];
+        for (int k = 0; k < count; k++) {
+            tables[k] = new UtilityTable(encoder);
+            for (int i = 0; i < encoder.getIssueCount(); i++) {
+                for (int v = 0; v < encoder.getValueCount(i); v++) {
+                    tables[k].set(i, v, random.nextDouble() / encoder.getIssueCount());
+                }
+            }
+        }
+        return new OpponentUtilities(tables);
+    }
+
+    private static double maxUtility(BidEncoder encoder, UtilityTable utilityTable) {
+
+        double utility = 0.0;
+        for (int i = 0; i < encoder.getIssueCount(); i++) {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int v = 0; v < encoder.getValueCount(i); v++) { max = Math.max(max, utilityTable.get(i, v)); }
+            utility += max;
+        }
+        return utility;
+    }
+
+    /**
+     * @return the highest Nash product of the bids with at least the target utility (clamped like the search)
+     */
+    private static double enumerate(BidEncoder encoder, UtilityTable utilityTable,
+                                    OpponentUtilities opponentUtilities, double target) {
+
+        int issueCount = encoder.getIssueCount();
+        double threshold = Math.min(target, maxUtility(encoder, utilityTable)) - EPSILON;
+        double best = Double.NEGATIVE_INFINITY;
+        int[] bid = new int[issueCount];
+
+        while (true) {
+            double utility = utilityTable.getUtility(bid);
+            if (utility >= threshold)
+                best = Math.max(best, utility * opponentUtilities.getUtility(bid));
+
+            // Next bid, as an odometer over the issues
+            int i = 0;
+            while (i < issueCount && ++bid[i] == encoder.getValueCount(i)) {
+                bid[i] = 0;
+                i++;
+            }
+            if (i == issueCount)
+                return best;
+        }
+    }
+}
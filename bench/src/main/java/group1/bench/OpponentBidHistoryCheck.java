@@ -0,0 +1,110 @@
+package group1.bench;
+
+import group1.BidEncoder;
+import group1.OpponentBidHistory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Checks the incrementally decayed value frequencies of OpponentBidHistory against a direct recomputation
+ * (every bid weighted by 0.5^(age / half-life)), for a short, a typical and an effectively infinite half-life,
+ * and that every bid and utility reads back as added. Prints the worst error per half-life and exits with
+ * status 1 when it exceeds TOLERANCE.
+ *
+ * Usage: OpponentBidHistoryCheck [name domain.xml profile.xml]...
+ * Run from the repository root.
+ */
+public class OpponentBidHistoryCheck {
+
+    private static final double[] HALF_LIVES = { 3, 50, 1e9 };
+    private static final int BIDS = 5000;
+    private static final int CHECK_INTERVAL = 499; // bids between recomputations
+    private static final int VALUES_PER_ISSUE = 3; // bids use the first values only, so frequencies build up
+    private static final double TOLERANCE = 1e-6;
+
+    public static void main(String[] args) throws Exception {
+
+        boolean match = true;
+        System.out.println("domain,half_life,bids,worst_error,read_back,match");
+
+        for (TemplateDomain domain : TemplateDomain.load(args)) {
+            BidEncoder encoder = new BidEncoder(domain.getDomain());
+
+            for (double halfLife : HALF_LIVES) {
+                OpponentBidHistory history = new OpponentBidHistory(encoder, halfLife);
+                List<int[]> bids = new ArrayList<int[]>();
+                SplittableRandom random = new SplittableRandom(3);
+                double worstError = 0.0;
+
+                for (int k = 0; k < BIDS; k++) {
+                    int[] bid = new int[encoder.getIssueCount()];
+                    for (int i = 0; i < bid.length; i++) {
+                        bid[i] = random.nextInt(Math.min(VALUES_PER_ISSUE, encoder.getValueCount(i)));
+                    }
+                    bids.add(bid);
+                    history.add(bid, k * 0.001);
+
+                    if (k % CHECK_INTERVAL == 0)
+                        worstError = Math.max(worstError, compare(encoder, history, bids, halfLife));
+                }
+
+                boolean readBack = true;
+                int[] bid = new int[encoder.getIssueCount()];
+                for (int k = 0; k < bids.size(); k++) {
+                    history.get(k, bid);
+                    readBack &= Arrays.equals(bid, bids.get(k)) && history.getUtility(k) == k * 0.001;
+                }
+
+                boolean same = readBack && worstError <= TOLERANCE;
+                match &= same;
+                System.out.printf("%s,%g,%d,%.2e,%b,%b%n", domain.getName(), halfLife, history.size(), worstError,
+                        readBack, same);
+            }
+        }
+
+        if (!match)
+            System.exit(1);
+    }
+
+    /**
+     * @return the largest error of the decayed frequencies (relative above 1), the relative frequencies and the
+     *         concentrations of the history, against the ones recomputed from all bids
+     */
+    private static double compare(BidEncoder encoder, OpponentBidHistory history, List<int[]> bids, double halfLife) {
+
+        double decay = Math.pow(0.5, 1.0 / halfLife);
+        double[] frequencies = new double[encoder.getTotalValues()];
+        for (int m = 0; m < bids.size(); m++) {
+            double weight = Math.pow(decay, bids.size() - 1 - m);
+            for (int i = 0; i < encoder.getIssueCount(); i++) { frequencies[encoder.getOffset(i) + bids.get(m)[i]] += weight; }
+        }
+
+        double[] squares = new double[encoder.getIssueCount()];
+        double totalSquares = 0.0;
+        for (int i = 0; i < encoder.getIssueCount(); i++) {
+            for (int v = 0; v < encoder.getValueCount(i); v++) {
+                double frequency = frequencies[encoder.getOffset(i) + v];
+                squares[i] += frequency * frequency;
+            }
+            totalSquares += squares[i];
+        }
+
+        double worstError = 0.0;
+        for (int i = 0; i < encoder.getIssueCount(); i++) {
+            double max = 0.0;
+            for (int v = 0; v < encoder.getValueCount(i); v++) { max = Math.max(max, frequencies[encoder.getOffset(i) + v]); }
+
+            for (int v = 0; v < encoder.getValueCount(i); v++) {
+                double frequency = frequencies[encoder.getOffset(i) + v];
+                worstError = Math.max(worstError,
+                        Math.abs(history.getDecayedFrequency(i, v) - frequency) / Math.max(1.0, frequency));
+                worstError = Math.max(worstError, Math.abs(history.getRelativeFrequency(i, v) - frequency / max));
+            }
+            worstError = Math.max(worstError, Math.abs(history.getConcentration(i) - squares[i] / totalSquares));
+        }
+        return worstError;
+    }
+}
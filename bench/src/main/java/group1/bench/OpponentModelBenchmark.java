@@ -0,0 +1,84 @@
+package group1.bench;
+
+import group1.BidEncoder;
+import group1.OpponentModel;
+import genius.core.Bid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updating and querying the opponent model after a history of a given size.
+ * The model is rebuilt for every iteration, so addBid measures it at (about) that history size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpponentModelBenchmark {
+
+    private static final int BID_COUNT = 1024; // random bids cycled through, a power of two
+
+    @Param({ "party", "energy", "smart-grid", "triangular-fight" })
+    public String domain;
+
+    @Param({ "100", "1000", "10000" })
+    public int historySize;
+
+    private BidEncoder encoder;
+    private Bid[] bids;
+    private OpponentModel opponentModel;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUpBids() throws Exception {
+
+        TemplateDomain templateDomain = TemplateDomain.named(this.domain);
+        Random random = new Random(this.historySize);
+
+        this.encoder = new BidEncoder(templateDomain.getDomain());
+        this.bids = new Bid[BID_COUNT];
+
+        for (int i = 0; i < BID_COUNT; i++) {
+            this.bids[i] = templateDomain.getDomain().getRandomBid(random);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpHistory() {
+
+        this.opponentModel = new OpponentModel(this.encoder);
+
+        for (int i = 0; i < this.historySize; i++) {
+            this.opponentModel.addBid(this.bids[i % BID_COUNT]);
+        }
+    }
+
+    @Benchmark
+    public void addBid() {
+        this.opponentModel.addBid(nextBid());
+    }
+
+    @Benchmark
+    public double getOpponentUtility() {
+        return this.opponentModel.getOpponentUtility(nextBid());
+    }
+
+    private Bid nextBid() {
+        return this.bids[this.next++ & (BID_COUNT - 1)];
+    }
+}
@@ -0,0 +1,163 @@
+package group1.bench;
+
+import group1.BidEncoder;
+import group1.RankingLinearProgram;
+import group1.RankingSolver;
+import group1.ScpRankingSolver;
+import group1.SimplexRankingSolver;
+import group1.UtilityTable;
+import genius.core.Bid;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.uncertainty.BidRanking;
+import genius.core.utility.AbstractUtilitySpace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the ranking LP solver backends on the etc/templates domains: solve time, the quality of the
+ * estimated utility space (agreement with the profile on random bid pairs), and the optimal objective
+ * (the total slack) of every backend against the one of the simplex on the same rankings. Agreement alone
+ * would pass a feasible but suboptimal solution, so the objective is the check. A ranking ordered by the
+ * profile has a zero optimum, so a few of its bids are swapped, as by an inconsistent user. The tool exits with
+ * status 1 when a solution is infeasible or its objective differs from the simplex beyond OBJECTIVE_TOLERANCE.
+ * The dense reference solver needs no native pack, so the small rankings are always checked.
+ *
+ * Usage: SolverBenchmark [name domain.xml profile.xml]...
+ * Run from the repository root; the SCPSolver backend needs its native solver pack on java.library.path.
+ */
+public class SolverBenchmark {
+
+    private static final int[] RANKING_SIZES = { 10, 100, 1000 };
+    private static final int REPETITIONS = 5;
+    private static final int AGREEMENT_PAIRS = 10000;
+    private static final double SWAPPED_FRACTION = 0.1; // pairs of bids swapped, per bid of the ranking
+    private static final int DENSE_MAX_RANKING = 100; // the dense reference pivots the whole tableau
+    private static final double OBJECTIVE_TOLERANCE = 1e-6; // relative to the objective, when above 1
+    private static final double FEASIBILITY_TOLERANCE = 1e-6;
+
+    public static void main(String[] args) throws Exception {
+
+        RankingSolver[] solvers = { new SimplexRankingSolver(), new ScpRankingSolver(), new DenseRankingSolver() };
+        String[] solverNames = { "simplex", "scpsolver", "dense" };
+        boolean match = true;
+
+        System.out.println("domain,ranking,solver,mean_ms,agreement,objective,max_objective_gap");
+
+        for (TemplateDomain domain : TemplateDomain.load(args)) {
+            BidEncoder encoder = new BidEncoder(domain.getDomain());
+
+            for (int size : RANKING_SIZES) {
+                long[] totalNanos = new long[solvers.length];
+                double[] totalAgreement = new double[solvers.length];
+                double[] totalObjective = new double[solvers.length];
+                double[] maxGap = new double[solvers.length];
+                String[] failures = new String[solvers.length];
+                Random random = new Random(size);
+                Random pairs = new Random(size); // separate, so a failing backend does not change the rankings
+
+                for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+                    BidRanking ranking = swapBids(domain.randomRanking(size, random), random);
+                    double simplexObjective = Double.NaN;
+
+                    for (int s = 0; s < solvers.length; s++) {
+                        if (failures[s] != null || (solvers[s] instanceof DenseRankingSolver && size > DENSE_MAX_RANKING))
+                            continue;
+
+                        try {
+                            long start = System.nanoTime();
+                            RankingLinearProgram problem = RankingLinearProgram.fromBidRanking(encoder, ranking);
+                            double[] solution = solvers[s].solve(problem);
+                            totalNanos[s] += System.nanoTime() - start;
+
+                            double objective = totalSlack(problem, solution);
+                            totalObjective[s] += objective;
+                            totalAgreement[s] += domain.rankingAgreement(utilitySpace(domain, encoder, solution), AGREEMENT_PAIRS, pairs);
+
+                            if (s == 0)
+                                simplexObjective = objective;
+                            double gap = Math.abs(objective - simplexObjective) / Math.max(1.0, simplexObjective);
+                            maxGap[s] = Double.isNaN(gap) ? Double.NaN : Math.max(maxGap[s], gap);
+                            match &= gap <= OBJECTIVE_TOLERANCE; // false for NaN, i.e. an infeasible solution
+                        } catch (Throwable error) {
+                            failures[s] = error.toString();
+                            match &= s != 0; // another backend may lack its native pack, the simplex may not fail
+                        }
+                    }
+                }
+
+                for (int s = 0; s < solvers.length; s++) {
+                    if (failures[s] != null) {
+                        System.out.printf("%s,%d,%s,failed: %s%n", domain.getName(), size, solverNames[s], failures[s]);
+                    } else if (totalNanos[s] > 0) {
+                        System.out.printf("%s,%d,%s,%.2f,%.4f,%.6f,%.2e%n", domain.getName(), size, solverNames[s],
+                                totalNanos[s] / 1e6 / REPETITIONS, totalAgreement[s] / REPETITIONS,
+                                totalObjective[s] / REPETITIONS, maxGap[s]);
+                    }
+                }
+            }
+        }
+
+        if (!match)
+            System.exit(1);
+    }
+
+    /**
+     * @return the objective of the ranking program for the value variables (each slack as small as its
+     *         row allows), or NaN if they break a bound or the pinned utilities
+     */
+    private static double totalSlack(RankingLinearProgram problem, double[] solution) {
+
+        BidEncoder encoder = problem.getEncoder();
+        double maximalUtility = 0.0;
+        double minimalUtility = 0.0;
+
+        for (int i = 0; i < encoder.getIssueCount(); i++) {
+            maximalUtility += solution[encoder.getOffset(i) + problem.getMaximalBid()[i]];
+            minimalUtility += solution[encoder.getOffset(i) + problem.getMinimalBid()[i]];
+        }
+        if (Math.abs(maximalUtility - problem.getHighUtility()) > FEASIBILITY_TOLERANCE
+                || Math.abs(minimalUtility - problem.getLowUtility()) > FEASIBILITY_TOLERANCE)
+            return Double.NaN;
+
+        for (double value : solution) {
+            if (value < -FEASIBILITY_TOLERANCE)
+                return Double.NaN;
+        }
+
+        double slack = 0.0;
+        for (int j = 0; j < problem.getComparisonCount(); j++) {
+            double difference = 0.0;
+            for (int k = problem.getRowStart(j); k < problem.getRowEnd(j); k++) {
+                difference += problem.getCoefficient(k) * solution[problem.getColumn(k)];
+            }
+            slack += Math.max(0.0, -difference);
+        }
+        return slack;
+    }
+
+    /**
+     * @return the ranking with random pairs of bids swapped, keeping the maximal and minimal bid
+     */
+    private static BidRanking swapBids(BidRanking ranking, Random random) {
+
+        List<Bid> bids = new ArrayList<Bid>(ranking.getBidOrder());
+
+        for (int k = 0; k < SWAPPED_FRACTION * bids.size() && bids.size() > 3; k++) {
+            Collections.swap(bids, 1 + random.nextInt(bids.size() - 2), 1 + random.nextInt(bids.size() - 2));
+        }
+        return new BidRanking(bids, ranking.getLowUtility(), ranking.getHighUtility());
+    }
+
+    private static AbstractUtilitySpace utilitySpace(TemplateDomain domain, BidEncoder encoder, double[] solution) {
+
+        UtilityTable utilityTable = new UtilityTable(encoder);
+        System.arraycopy(solution, 0, utilityTable.getValues(), 0, solution.length);
+
+        AdditiveUtilitySpaceFactory additiveUtilitySpaceFactory = new AdditiveUtilitySpaceFactory(domain.getDomain());
+        utilityTable.writeTo(additiveUtilitySpaceFactory);
+        return additiveUtilitySpaceFactory.getUtilitySpace();
+    }
+}
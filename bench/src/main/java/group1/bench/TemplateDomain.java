@@ -0,0 +1,140 @@
+package group1.bench;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.uncertainty.BidRanking;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.AbstractUtilitySpace;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A domain and preference profile from etc/templates, with helpers to derive rankings from the profile.
+ */
+public class TemplateDomain {
+
+    // Domains used when a tool is run without arguments: name, domain file, profile file
+    public static final String[][] DEFAULT_DOMAINS = {
+            { "party", "etc/templates/partydomain/party_domain.xml", "etc/templates/partydomain/party1_utility.xml" },
+            { "laptop", "etc/templates/laptopdomain/laptop_domain.xml", "etc/templates/laptopdomain/laptop_buyer_utility.xml" },
+            { "jobs", "etc/templates/Jobs/Jobs.xml", "etc/templates/Jobs/Jobs_util1.xml" },
+            { "energy", "etc/templates/Energy/energy_domain.xml", "etc/templates/Energy/energy_consumer.xml" },
+            { "smart-grid", "etc/templates/ANAC2016/Caduceus/Smart_Grid.xml", "etc/templates/ANAC2016/Caduceus/Smart_Grid_util1.xml" },
+            { "triangular-fight", "etc/templates/ANAC2016/Atlas3/triangularFight.xml", "etc/templates/ANAC2016/Atlas3/triangularFight_util1.xml" },
+    };
+
+    private String name;
+    private Domain domain;
+    private AdditiveUtilitySpace utilitySpace;
+
+    public TemplateDomain(String name, String domainFile, String profileFile) throws Exception {
+
+        this.name = name;
+        this.domain = new DomainImpl(resolve(domainFile));
+        this.utilitySpace = new AdditiveUtilitySpace(this.domain, resolve(profileFile));
+    }
+
+    /**
+     * @return the domain of DEFAULT_DOMAINS with the given name
+     */
+    public static TemplateDomain named(String name) throws Exception {
+
+        for (String[] files : DEFAULT_DOMAINS) {
+            if (files[0].equals(name))
+                return new TemplateDomain(files[0], files[1], files[2]);
+        }
+        throw new IllegalArgumentException("Unknown template domain: " + name);
+    }
+
+    /**
+     * Paths are relative to the repository root; this also finds them when run from the bench directory.
+     */
+    private static String resolve(String path) {
+
+        if (new File(path).exists() || new File(path).isAbsolute())
+            return path;
+
+        File parent = new File("..", path);
+        return parent.exists() ? parent.getPath() : path;
+    }
+
+    /**
+     * @return the domains of DEFAULT_DOMAINS, or of the (name, domain, profile) triples given
+     */
+    public static List<TemplateDomain> load(String[] arguments) throws Exception {
+
+        List<TemplateDomain> domains = new ArrayList<TemplateDomain>();
+
+        if (arguments.length < 3) {
+            for (String[] files : DEFAULT_DOMAINS) { domains.add(new TemplateDomain(files[0], files[1], files[2])); }
+        } else {
+            for (int i = 0; i + 2 < arguments.length; i += 3) {
+                domains.add(new TemplateDomain(arguments[i], arguments[i + 1], arguments[i + 2]));
+            }
+        }
+        return domains;
+    }
+
+    public String getName() { return this.name; }
+
+    public Domain getDomain() { return this.domain; }
+
+    public AdditiveUtilitySpace getUtilitySpace() { return this.utilitySpace; }
+
+    /**
+     * Rank random bids by the utility of the profile, like the user model of an uncertain profile does.
+     *
+     * @param size The number of bids in the ranking
+     * @param random The source of the bids
+     * @return the ranking, from low to high
+     */
+    public BidRanking randomRanking(int size, Random random) {
+
+        List<Bid> bids = new ArrayList<Bid>();
+
+        for (int i = 0; i < size; i++) { bids.add(this.domain.getRandomBid(random)); }
+
+        bids.sort(Comparator.comparingDouble(bid -> this.utilitySpace.getUtility(bid)));
+
+        double low = this.utilitySpace.getUtility(bids.get(0));
+        double high = this.utilitySpace.getUtility(bids.get(bids.size() - 1));
+        return new BidRanking(bids, low, high);
+    }
+
+    /**
+     * Compare the order of random bid pairs under the profile and under an estimate.
+     *
+     * @param estimate The estimated utility space
+     * @param pairs The number of random pairs to compare
+     * @param random The source of the bids
+     * @return the fraction of pairs ordered the same way
+     */
+    public double rankingAgreement(AbstractUtilitySpace estimate, int pairs, Random random) {
+        return rankingAgreement(this.utilitySpace, estimate, pairs, random);
+    }
+
+    /**
+     * Compare the order of random bid pairs under two utility spaces of the domain.
+     *
+     * @return the fraction of pairs ordered the same way
+     */
+    public double rankingAgreement(AbstractUtilitySpace reference, AbstractUtilitySpace estimate, int pairs, Random random) {
+
+        int agreed = 0;
+
+        for (int i = 0; i < pairs; i++) {
+            Bid first = this.domain.getRandomBid(random);
+            Bid second = this.domain.getRandomBid(random);
+            double actual = reference.getUtility(first) - reference.getUtility(second);
+            double estimated = estimate.getUtility(first) - estimate.getUtility(second);
+
+            if (Math.signum(actual) == Math.signum(estimated)) { agreed++; }
+        }
+        return agreed / (double) pairs;
+    }
+}
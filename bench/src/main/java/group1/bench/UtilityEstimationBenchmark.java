@@ -0,0 +1,63 @@
+package group1.bench;
+
+import group1.LinearProgrammingEstimation;
+import group1.StreamingRankingEstimation;
+import group1.UtilityEstimation;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.uncertainty.BidRanking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full estimation of the utility space from a synthetic ranking of a given size,
+ * by the linear program or by the streaming learner.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UtilityEstimationBenchmark {
+
+    @Param({ "party", "energy", "smart-grid", "triangular-fight" })
+    public String domain;
+
+    @Param({ "10", "100", "1000" })
+    public int rankingSize;
+
+    @Param({ "lp", "streaming" })
+    public String engine;
+
+    private TemplateDomain templateDomain;
+    private BidRanking bidRanking;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        this.templateDomain = TemplateDomain.named(this.domain);
+        this.bidRanking = this.templateDomain.randomRanking(this.rankingSize, new Random(this.rankingSize));
+    }
+
+    @Benchmark
+    public AdditiveUtilitySpaceFactory Estimation() throws Exception {
+
+        UtilityEstimation utilityEstimation = this.engine.equals("lp")
+                ? new LinearProgrammingEstimation(this.templateDomain.getDomain(), this.bidRanking)
+                : new StreamingRankingEstimation(this.templateDomain.getDomain(), this.bidRanking);
+        return utilityEstimation.Estimation();
+    }
+}
@@ -0,0 +1,46 @@
+package group1.bench;
+
+import genius.core.timeline.TimeLineInfo;
+
+/**
+ * Timeline whose time is set by the caller instead of following the clock, so an agent can be
+ * put at any point of a negotiation.
+ */
+public class VirtualTimeLine implements TimeLineInfo {
+
+    private Type type;
+    private double totalTime; // rounds, or seconds for a TIME deadline
+    private double currentTime;
+
+    public VirtualTimeLine(double totalTime) {
+        this(Type.Rounds, totalTime);
+    }
+
+    public VirtualTimeLine(Type type, double totalTime) {
+
+        this.type = type;
+        this.totalTime = totalTime;
+    }
+
+    /**
+     * @param time The normalised time, from 0 (start) to 1 (deadline)
+     */
+    public void setTime(double time) { this.currentTime = time * this.totalTime; }
+
+    /**
+     * Move the timeline forward, e.g. by one round or by the virtual duration of a turn.
+     */
+    public void advance(double amount) { this.currentTime = Math.min(this.totalTime, this.currentTime + amount); }
+
+    @Override
+    public Type getType() { return this.type; }
+
+    @Override
+    public double getTime() { return this.currentTime / this.totalTime; }
+
+    @Override
+    public double getTotalTime() { return this.totalTime; }
+
+    @Override
+    public double getCurrentTime() { return this.currentTime; }
+}
@@ -0,0 +1,86 @@
+package group1.sim;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A tournament of a league*.xml multilateral tournament configuration, as written by the Genius GUI.
+ * Only what the simulator uses is read: the deadline, the parties, the profiles and the repeats.
+ */
+public class LeagueConfig {
+
+    private String name;
+    private int deadlineValue;
+    private String deadlineType; // TIME (seconds) or ROUND
+    private List<String> partyClasses;
+    private List<String> profileUrls;
+    private int repeats;
+    private int partiesPerSession;
+
+    private LeagueConfig(String name) {
+
+        this.name = name;
+        this.partyClasses = new ArrayList<String>();
+        this.profileUrls = new ArrayList<String>();
+    }
+
+    /**
+     * @param file The configuration file
+     * @return every tournament of the configuration
+     */
+    public static List<LeagueConfig> parse(File file) throws Exception {
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+        NodeList tournaments = document.getElementsByTagName("tournament");
+        String baseName = file.getName().replace(".xml", "");
+        List<LeagueConfig> configs = new ArrayList<LeagueConfig>();
+
+        for (int t = 0; t < tournaments.getLength(); t++) {
+            Element tournament = (Element) tournaments.item(t);
+            LeagueConfig config = new LeagueConfig(tournaments.getLength() == 1 ? baseName : baseName + "#" + t);
+
+            Element deadline = (Element) tournament.getElementsByTagName("deadline").item(0);
+            config.deadlineValue = Integer.parseInt(text(deadline, "value"));
+            config.deadlineType = text(deadline, "type");
+
+            NodeList parties = ((Element) tournament.getElementsByTagName("partyRepItems").item(0)).getElementsByTagName("party");
+            for (int p = 0; p < parties.getLength(); p++) {
+                config.partyClasses.add(((Element) parties.item(p)).getAttribute("classPath"));
+            }
+
+            NodeList profiles = ((Element) tournament.getElementsByTagName("partyProfileItems").item(0)).getElementsByTagName("item");
+            for (int p = 0; p < profiles.getLength(); p++) {
+                config.profileUrls.add(((Element) profiles.item(p)).getAttribute("url"));
+            }
+
+            config.repeats = Integer.parseInt(text(tournament, "repeats"));
+            config.partiesPerSession = Integer.parseInt(text(tournament, "numberOfPartiesPerSession"));
+            configs.add(config);
+        }
+        return configs;
+    }
+
+    private static String text(Element parent, String tag) {
+        return parent.getElementsByTagName(tag).item(0).getTextContent().trim();
+    }
+
+    public String getName() { return this.name; }
+
+    public int getDeadlineValue() { return this.deadlineValue; }
+
+    public boolean isTimeDeadline() { return "TIME".equals(this.deadlineType); }
+
+    public List<String> getPartyClasses() { return this.partyClasses; }
+
+    public List<String> getProfileUrls() { return this.profileUrls; }
+
+    public int getRepeats() { return this.repeats; }
+
+    public int getPartiesPerSession() { return this.partiesPerSession; }
+}
@@ -0,0 +1,88 @@
+package group1.sim;
+
+import group1.BidEncoder;
+import group1.UtilityTable;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The utilities of the parties at the outcome maximising the product of their utilities.
+ * Small outcome spaces are enumerated; larger ones are sampled, which gives a lower bound.
+ */
+public class NashPoint {
+
+    private static final long MAX_ENUMERATED_OUTCOMES = 1L << 21;
+    private static final int SAMPLED_OUTCOMES = 1 << 21;
+
+    private double[] utilities;
+
+    private NashPoint(double[] utilities) {
+        this.utilities = utilities;
+    }
+
+    /**
+     * @param profiles The profiles of the parties, all of the same domain
+     */
+    public static NashPoint compute(List<ProfileRepository.Profile> profiles) {
+
+        BidEncoder encoder = new BidEncoder(profiles.get(0).getTemplateDomain().getDomain());
+        UtilityTable[] tables = new UtilityTable[profiles.size()];
+
+        for (int p = 0; p < tables.length; p++) {
+            tables[p] = UtilityTable.fromUtilitySpace(encoder, profiles.get(p).getTemplateDomain().getUtilitySpace());
+        }
+
+        long outcomes = 1;
+        for (int i = 0; i < encoder.getIssueCount(); i++) {
+            outcomes = Math.min(Long.MAX_VALUE / 64, outcomes * encoder.getValueCount(i));
+        }
+
+        int[] bid = new int[encoder.getIssueCount()];
+        int[] best = new int[encoder.getIssueCount()];
+        double bestProduct = -1.0;
+        SplittableRandom random = new SplittableRandom(0);
+        boolean enumerate = outcomes <= MAX_ENUMERATED_OUTCOMES;
+        long count = enumerate ? outcomes : SAMPLED_OUTCOMES;
+
+        for (long n = 0; n < count; n++) {
+            if (enumerate) {
+                // Mixed-radix decoding of the outcome number
+                long rest = n;
+                for (int i = 0; i < bid.length; i++) {
+                    bid[i] = (int) (rest % encoder.getValueCount(i));
+                    rest /= encoder.getValueCount(i);
+                }
+            } else {
+                for (int i = 0; i < bid.length; i++) { bid[i] = random.nextInt(encoder.getValueCount(i)); }
+            }
+
+            double product = 1.0;
+            for (UtilityTable table : tables) { product *= table.getUtility(bid); }
+
+            if (product > bestProduct) {
+                bestProduct = product;
+                System.arraycopy(bid, 0, best, 0, bid.length);
+            }
+        }
+
+        double[] utilities = new double[tables.length];
+        for (int p = 0; p < tables.length; p++) { utilities[p] = tables[p].getUtility(best); }
+        return new NashPoint(utilities);
+    }
+
+    /**
+     * @param utilities The utilities of the parties at an outcome
+     * @return the Euclidean distance of the outcome to the Nash point in utility space
+     */
+    public double distance(double[] utilities) {
+
+        double sum = 0.0;
+
+        for (int p = 0; p < this.utilities.length; p++) {
+            double difference = utilities[p] - this.utilities[p];
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+    }
+}
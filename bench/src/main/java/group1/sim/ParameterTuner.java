@@ -0,0 +1,353 @@
+package group1.sim;
+
+import group1.BidEncoder;
+import group1.StrategyParameters;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches the StrategyParameters for the configuration with the highest mean agent utility, per class
+ * of domain size, over simulated bilateral sessions against the stand-ins on the domains of
+ * domainrepository.xml (those of etc/templates that load with discrete issues and at least two profiles).
+ *
+ * Configurations are drawn at random from a grid around the defaults, which are always a candidate.
+ * They are compared by successive halving: every candidate plays the first sessions of a shuffled pool,
+ * the best 1/eta of them play eta times as many, and so on until one candidate is left or the pool is
+ * exhausted, so a poor configuration is dropped after a few sessions. All candidates of a rung play the
+ * same sessions with the same seeds, and a candidate only plays the sessions it did not play before.
+ * Sessions run in parallel on a virtual clock.
+ *
+ * The best configuration of every class is printed in the format of -Dgroup1.parameters, with only the
+ * parameters that differ from the defaults, after the scores of the best and the default configuration.
+ *
+ * Usage: ParameterTuner [-configs n] [-eta n] [-min-sessions n] [-domains n] [-rounds n] [-ranking n]
+ *        [-threads n] [-opponents boulware,conceder,random] [-seed n]
+ * Run from the repository root (or bench).
+ */
+public class ParameterTuner {
+
+    private static final int DEFAULT_CONFIGS = 27;
+    private static final int DEFAULT_ETA = 3;
+    private static final int DEFAULT_ROUNDS = 180;
+
+    // Bounds of the domain classes, in possible bids
+    private static final long SMALL_DOMAIN_OUTCOMES = 1000;
+    private static final long MEDIUM_DOMAIN_OUTCOMES = 100000;
+
+    // The values tried for every tuned parameter; the others keep their default
+    private static final String[][] SEARCH_SPACE = {
+            { "hardheadedPercentage", "0.05", "0.1", "0.2", "0.3" },
+            { "minimumStartingTargetUtility", "0.75", "0.8", "0.85", "0.9", "0.95" },
+            { "earlyConcedingFactor", "7", "10", "13", "16", "20" },
+            { "concedingFactor", "5", "7", "10", "13" },
+            { "hardheadedConcedingFactor", "4", "5", "7", "10" },
+            { "concedingFactorSwitchTime", "0.8", "0.85", "0.9", "0.95" },
+            { "hardheadednessThreshold", "0.4", "0.5", "0.6", "0.7", "0.8" },
+            { "hardheadednessTurns", "5", "10", "20" },
+            { "closingAcceptanceMargin", "0.0", "0.025", "0.05", "0.1" },
+            { "biddingMode", "SAMPLING", "FRONTIER", "EXACT" },
+            { "amountOfTopBidsToOffer", "1", "3", "5", "10" },
+            { "paretoFrontierSamplesPerRound", "16", "32", "64" }
+    };
+
+    enum DomainClass {
+
+        SMALL, MEDIUM, LARGE;
+
+        static DomainClass of(long outcomes) {
+            return outcomes <= SMALL_DOMAIN_OUTCOMES ? SMALL : outcomes <= MEDIUM_DOMAIN_OUTCOMES ? MEDIUM : LARGE;
+        }
+    }
+
+    /**
+     * A session every candidate of a domain class plays: the profiles, the stand-in and the seed.
+     */
+    private static class SessionSpec {
+
+        private List<ProfileRepository.Profile> profiles;
+        private NashPoint nashPoint;
+        private StandIn standIn;
+        private long seed;
+
+        SessionSpec(List<ProfileRepository.Profile> profiles, NashPoint nashPoint, StandIn standIn, long seed) {
+
+            this.profiles = profiles;
+            this.nashPoint = nashPoint;
+            this.standIn = standIn;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * A configuration and its results over the sessions it played, always a prefix of the pool.
+     */
+    private static class Candidate {
+
+        private StrategyParameters parameters;
+        private int sessions;
+        private int agreements;
+        private int failures;
+        private double agentUtility;
+        private double nashDistance;
+
+        Candidate(StrategyParameters parameters) {
+            this.parameters = parameters;
+        }
+
+        void add(SessionResult result) {
+
+            this.sessions++;
+            this.agreements += result.isAgreement() ? 1 : 0;
+            this.failures += result.isFailed() ? 1 : 0;
+            this.agentUtility += result.getAgentUtility();
+            this.nashDistance += result.getNashDistance();
+        }
+
+        double getMeanUtility() { return this.sessions == 0 ? 0.0 : this.agentUtility / this.sessions; }
+
+        @Override
+        public String toString() {
+            return String.format("sessions=%d utility=%.4f agreements=%.2f nash_distance=%.4f failed=%d", this.sessions,
+                    getMeanUtility(), this.agreements / (double) this.sessions, this.nashDistance / this.sessions, this.failures);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        int configs = DEFAULT_CONFIGS;
+        int eta = DEFAULT_ETA;
+        int minSessions = 0; // one session per stand-in and side by default
+        int maxDomains = Integer.MAX_VALUE;
+        int rounds = DEFAULT_ROUNDS;
+        int rankingSize = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 0;
+        List<StandIn> standIns = new ArrayList<StandIn>(Arrays.asList(StandIn.values()));
+
+        for (int a = 0; a < args.length; a++) {
+            switch (args[a]) {
+                case "-configs": configs = Integer.parseInt(args[++a]); break;
+                case "-eta": eta = Integer.parseInt(args[++a]); break;
+                case "-min-sessions": minSessions = Integer.parseInt(args[++a]); break;
+                case "-domains": maxDomains = Integer.parseInt(args[++a]); break;
+                case "-rounds": rounds = Integer.parseInt(args[++a]); break;
+                case "-ranking": rankingSize = Integer.parseInt(args[++a]); break;
+                case "-threads": threads = Integer.parseInt(args[++a]); break;
+                case "-seed": seed = Long.parseLong(args[++a]); break;
+                case "-opponents":
+                    standIns.clear();
+                    for (String name : args[++a].split(",")) { standIns.add(StandIn.valueOf(name.trim().toUpperCase())); }
+                    break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[a]);
+            }
+        }
+
+        if (configs < 1 || eta < 2 || rounds < 1 || standIns.isEmpty())
+            throw new IllegalArgumentException("Need at least 1 configuration, eta 2, 1 round and 1 opponent");
+
+        if (minSessions <= 0)
+            minSessions = 2 * standIns.size();
+
+        System.setProperty("group1.store", "none");
+        System.setProperty("group1.metrics", "false"); // no summary per session
+        System.clearProperty("group1.trace");
+
+        File root = new File("domainrepository.xml").exists() ? new File(".") : new File("..");
+        Map<DomainClass, List<SessionSpec>> pools = createPools(new ProfileRepository(root), standIns, maxDomains, rankingSize, seed);
+        List<StrategyParameters> parameterSets = sampleParameters(configs, seed);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+
+        try {
+            for (Map.Entry<DomainClass, List<SessionSpec>> entry : pools.entrySet()) {
+                tune(entry.getKey(), entry.getValue(), parameterSets, eta, minSessions, rounds, executor);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        System.err.printf("tuned on %d threads in %.1f s%n", threads, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * The sessions of every domain class: per domain the first two profiles, with the agent on either
+     * side, against every stand-in; shuffled so that a prefix covers many domains.
+     */
+    private static Map<DomainClass, List<SessionSpec>> createPools(ProfileRepository repository, List<StandIn> standIns,
+                                                                  int maxDomains, int rankingSize, long seed) {
+
+        Map<DomainClass, List<SessionSpec>> pools = new EnumMap<DomainClass, List<SessionSpec>>(DomainClass.class);
+        Map<DomainClass, Integer> domainCounts = new EnumMap<DomainClass, Integer>(DomainClass.class);
+
+        for (Map.Entry<String, List<String>> domain : repository.getProfileUrlsByDomain().entrySet()) {
+            if (domain.getValue().size() < 2)
+                continue;
+
+            List<ProfileRepository.Profile> profiles = new ArrayList<ProfileRepository.Profile>();
+            List<List<ProfileRepository.Profile>> sides = new ArrayList<List<ProfileRepository.Profile>>(); // the agent on either side
+            List<NashPoint> nashPoints = new ArrayList<NashPoint>();
+            DomainClass domainClass;
+
+            try {
+                for (String url : domain.getValue().subList(0, 2)) {
+                    ProfileRepository.Profile profile = repository.get(url);
+
+                    if (rankingSize > 0 && !profile.isUncertain())
+                        profile = new ProfileRepository.Profile(profile.getName() + "_u" + rankingSize, profile.getTemplateDomain(), rankingSize);
+
+                    profiles.add(profile);
+                }
+                BidEncoder encoder = new BidEncoder(profiles.get(0).getTemplateDomain().getDomain());
+
+                if (encoder.getIssueCount() == 0)
+                    throw new IllegalArgumentException("no issues");
+
+                domainClass = DomainClass.of(outcomes(encoder));
+
+                if (domainCounts.containsKey(domainClass) && domainCounts.get(domainClass) >= maxDomains)
+                    continue;
+
+                for (int side = 0; side < 2; side++) {
+                    sides.add(Arrays.asList(profiles.get(side), profiles.get(1 - side)));
+                    nashPoints.add(NashPoint.compute(sides.get(side)));
+                }
+            } catch (Exception e) {
+                System.err.println("skipping " + domain.getKey() + ": " + e);
+                continue;
+            }
+
+            domainCounts.put(domainClass, domainCounts.containsKey(domainClass) ? domainCounts.get(domainClass) + 1 : 1);
+
+            if (!pools.containsKey(domainClass))
+                pools.put(domainClass, new ArrayList<SessionSpec>());
+
+            for (int side = 0; side < 2; side++) {
+                for (StandIn standIn : standIns) {
+                    List<SessionSpec> pool = pools.get(domainClass);
+                    pool.add(new SessionSpec(sides.get(side), nashPoints.get(side), standIn, seed + pool.size()));
+                }
+            }
+        }
+
+        for (Map.Entry<DomainClass, List<SessionSpec>> entry : pools.entrySet()) {
+            Collections.shuffle(entry.getValue(), new Random(seed));
+            System.err.printf("%s: %d domains, %d sessions%n", entry.getKey(), domainCounts.get(entry.getKey()), entry.getValue().size());
+        }
+        return pools;
+    }
+
+    private static long outcomes(BidEncoder encoder) {
+
+        long outcomes = 1;
+        for (int i = 0; i < encoder.getIssueCount(); i++) { outcomes = Math.min(Long.MAX_VALUE / 64, outcomes * encoder.getValueCount(i)); }
+        return outcomes;
+    }
+
+    /**
+     * @return the defaults followed by distinct random configurations of the search space
+     */
+    private static List<StrategyParameters> sampleParameters(int count, long seed) {
+
+        SplittableRandom random = new SplittableRandom(seed);
+        List<StrategyParameters> parameterSets = new ArrayList<StrategyParameters>();
+        Set<String> seen = new HashSet<String>();
+        StrategyParameters defaults = new StrategyParameters();
+
+        parameterSets.add(defaults);
+        seen.add(defaults.toString());
+
+        for (int attempt = 0; parameterSets.size() < count && attempt < 100 * count; attempt++) {
+            StrategyParameters parameters = defaults;
+
+            for (String[] dimension : SEARCH_SPACE) {
+                parameters = parameters.with(dimension[0], dimension[1 + random.nextInt(dimension.length - 1)]);
+            }
+
+            if (seen.add(parameters.toString()))
+                parameterSets.add(parameters);
+        }
+        return parameterSets;
+    }
+
+    /**
+     * Successive halving over the pool of one domain class; prints the best configuration.
+     */
+    private static void tune(DomainClass domainClass, List<SessionSpec> pool, List<StrategyParameters> parameterSets, int eta,
+                             int minSessions, int rounds, ExecutorService executor) throws Exception {
+
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        for (StrategyParameters parameters : parameterSets) { candidates.add(new Candidate(parameters)); }
+
+        Candidate defaults = candidates.get(0);
+        List<Candidate> alive = candidates;
+        int sessions = Math.min(minSessions, pool.size());
+
+        for (int rung = 0; ; rung++) {
+            play(alive, pool, sessions, domainClass, rounds, executor);
+
+            alive = new ArrayList<Candidate>(alive);
+            Collections.sort(alive, new Comparator<Candidate>() {
+                @Override
+                public int compare(Candidate first, Candidate second) { return Double.compare(second.getMeanUtility(), first.getMeanUtility()); }
+            });
+            System.err.printf("%s rung %d: %d configurations x %d sessions, best utility %.4f%n", domainClass, rung,
+                    alive.size(), sessions, alive.get(0).getMeanUtility());
+
+            if (alive.size() == 1 || sessions == pool.size())
+                break;
+
+            alive = alive.subList(0, Math.max(1, alive.size() / eta));
+            sessions = (int) Math.min(pool.size(), (long) sessions * eta);
+        }
+
+        Candidate best = alive.get(0);
+
+        // Compare with the defaults over the same sessions, also when they were dropped early
+        play(Collections.singletonList(defaults), pool, best.sessions, domainClass, rounds, executor);
+
+        System.out.printf("# %s (%d sessions): best %s%n", domainClass, pool.size(), best);
+        System.out.printf("# %s defaults %s%n", domainClass, defaults);
+
+        for (String name : StrategyParameters.NAMES) {
+            if (!best.parameters.get(name).equals(defaults.parameters.get(name)))
+                System.out.println(name + "=" + best.parameters.get(name));
+        }
+        System.out.println();
+    }
+
+    /**
+     * Let every candidate play the sessions of the pool up to the given number that it did not play yet.
+     */
+    private static void play(List<Candidate> candidates, List<SessionSpec> pool, int sessions, DomainClass domainClass, int rounds,
+                             ExecutorService executor) throws Exception {
+
+        List<Candidate> players = new ArrayList<Candidate>();
+        List<Future<SessionResult>> futures = new ArrayList<Future<SessionResult>>();
+
+        for (Candidate candidate : candidates) {
+            for (int s = candidate.sessions; s < sessions; s++) {
+                SessionSpec spec = pool.get(s);
+                Session session = new Session("tune-" + domainClass.name().toLowerCase(), s, spec.standIn, spec.profiles,
+                        spec.nashPoint, false, rounds, 1.0 / spec.profiles.size(), spec.seed, candidate.parameters);
+
+                players.add(candidate);
+                futures.add(executor.submit(session));
+            }
+        }
+
+        for (int f = 0; f < futures.size(); f++) { players.get(f).add(futures.get(f).get()); }
+    }
+}
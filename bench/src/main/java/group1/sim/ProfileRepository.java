@@ -0,0 +1,144 @@
+package group1.sim;
+
+import group1.bench.TemplateDomain;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the profile urls of the league configurations to a domain and preference profile,
+ * using domainrepository.xml to find the domain of every profile.
+ *
+ * The uncertain profiles a league refers to (e.g. party1_utility_u1500_c001.xml) are generated by the
+ * Genius GUI and are not always present; for those the profile without the _u[size]_c[cost] suffix is
+ * loaded, and the ranking size is taken from the name. Otherwise it is read from the comparisons element.
+ */
+public class ProfileRepository {
+
+    private static final Pattern UNCERTAIN_SUFFIX = Pattern.compile("_u(\\d+)(_c\\d+)?\\.xml$");
+
+    private File root; // directory the file: urls are relative to
+    private Map<String, String> domainOfProfile; // profile url to domain url
+    private Map<String, List<String>> profilesOfDomain; // domain url to its profile urls, in repository order
+    private Map<String, Profile> profiles; // loaded profiles by url
+
+    public ProfileRepository(File root) throws Exception {
+
+        this.root = root;
+        this.domainOfProfile = new HashMap<String, String>();
+        this.profilesOfDomain = new LinkedHashMap<String, List<String>>();
+        this.profiles = new HashMap<String, Profile>();
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(root, "domainrepository.xml"));
+        NodeList domains = document.getElementsByTagName("domainRepItem");
+
+        for (int d = 0; d < domains.getLength(); d++) {
+            Element domain = (Element) domains.item(d);
+            NodeList profiles = domain.getElementsByTagName("profile");
+            List<String> profileUrls = new ArrayList<String>();
+
+            for (int p = 0; p < profiles.getLength(); p++) {
+                this.domainOfProfile.put(((Element) profiles.item(p)).getAttribute("url"), domain.getAttribute("url"));
+                profileUrls.add(((Element) profiles.item(p)).getAttribute("url"));
+            }
+            this.profilesOfDomain.put(domain.getAttribute("url"), profileUrls);
+        }
+    }
+
+    /**
+     * Load a profile, or return it if it was loaded before. Not thread-safe: load every profile
+     * before the sessions start, after which the profiles are only read.
+     *
+     * @param url The profile url, e.g. file:etc/templates/partydomain/party1_utility.xml
+     * @return the profile
+     */
+    public Profile get(String url) throws Exception {
+
+        Profile profile = this.profiles.get(url);
+
+        if (profile != null)
+            return profile;
+
+        String domainUrl = this.domainOfProfile.get(url);
+
+        if (domainUrl == null)
+            throw new IllegalArgumentException("Profile not in domainrepository.xml: " + url);
+
+        File profileFile = file(url);
+        int rankingSize = 0;
+
+        if (profileFile.exists()) {
+            rankingSize = readComparisons(profileFile);
+        } else {
+            Matcher matcher = UNCERTAIN_SUFFIX.matcher(profileFile.getName());
+
+            if (!matcher.find())
+                throw new IllegalArgumentException("Profile not found: " + profileFile);
+
+            rankingSize = Integer.parseInt(matcher.group(1));
+            profileFile = new File(profileFile.getParentFile(), matcher.replaceFirst(".xml"));
+        }
+
+        String name = profileFile.getName().replace(".xml", "") + (rankingSize > 0 ? "_u" + rankingSize : "");
+        profile = new Profile(name, new TemplateDomain(name, file(domainUrl).getPath(), profileFile.getPath()), rankingSize);
+        this.profiles.put(url, profile);
+        return profile;
+    }
+
+    /**
+     * @return the domain urls of domainrepository.xml, each with the urls of its profiles
+     */
+    public Map<String, List<String>> getProfileUrlsByDomain() { return Collections.unmodifiableMap(this.profilesOfDomain); }
+
+    private File file(String url) { return new File(this.root, url.replaceFirst("^file:", "")); }
+
+    /**
+     * @return the ranking size of an uncertain profile, 0 for a profile without uncertainty
+     */
+    private static int readComparisons(File profileFile) throws Exception {
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(profileFile);
+        NodeList comparisons = document.getElementsByTagName("comparisons");
+
+        if (!"UNCERTAIN".equals(document.getDocumentElement().getAttribute("type")) || comparisons.getLength() == 0)
+            return 0;
+
+        return Integer.parseInt(comparisons.item(0).getTextContent().trim());
+    }
+
+    /**
+     * A preference profile of a domain, with the size of the ranking the user model gets (0 if certain).
+     */
+    public static class Profile {
+
+        private String name;
+        private TemplateDomain templateDomain;
+        private int rankingSize;
+
+        Profile(String name, TemplateDomain templateDomain, int rankingSize) {
+
+            this.name = name;
+            this.templateDomain = templateDomain;
+            this.rankingSize = rankingSize;
+        }
+
+        public String getName() { return this.name; }
+
+        public TemplateDomain getTemplateDomain() { return this.templateDomain; }
+
+        public int getRankingSize() { return this.rankingSize; }
+
+        public boolean isUncertain() { return this.rankingSize > 0; }
+    }
+}
@@ -0,0 +1,55 @@
+package group1.sim;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.Offer;
+import genius.core.parties.AbstractNegotiationParty;
+import genius.core.parties.NegotiationInfo;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stand-in opponent offering uniformly random bids, and accepting an offer worth at least
+ * the random bid it would offer instead.
+ */
+public class RandomParty extends AbstractNegotiationParty {
+
+    private Random random;
+    private Bid lastReceivedBid;
+
+    @Override
+    public void init(NegotiationInfo info) {
+
+        super.init(info);
+        this.random = new Random(info.getRandomSeed());
+    }
+
+    @Override
+    public Action chooseAction(List<Class<? extends Action>> possibleActions) {
+
+        Bid bid = getDomain().getRandomBid(this.random);
+
+        if (this.lastReceivedBid != null && possibleActions.contains(Accept.class)
+                && this.utilitySpace.getUtility(this.lastReceivedBid) >= this.utilitySpace.getUtility(bid))
+            return new Accept(getPartyId(), this.lastReceivedBid);
+
+        return new Offer(getPartyId(), bid);
+    }
+
+    @Override
+    public void receiveMessage(AgentID sender, Action action) {
+
+        super.receiveMessage(sender, action);
+
+        if (action instanceof Offer)
+            this.lastReceivedBid = ((Offer) action).getBid();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Random stand-in";
+    }
+}
@@ -0,0 +1,163 @@
+package group1.sim;
+
+import group1.Agent1;
+import group1.StrategyParameters;
+import group1.bench.VirtualTimeLine;
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.Deadline;
+import genius.core.DeadlineType;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.EndNegotiation;
+import genius.core.actions.Offer;
+import genius.core.parties.AbstractNegotiationParty;
+import genius.core.parties.NegotiationInfo;
+import genius.core.timeline.TimeLineInfo;
+import genius.core.uncertainty.UserModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * A single negotiation under the stacked alternating offers protocol: the parties take turns, each
+ * accepting the offer on the table or replacing it, until all other parties accepted an offer, a party
+ * ends the negotiation, or the deadline passes. Every action is sent to all other parties.
+ *
+ * The agent is party 0, the stand-ins the others. Time is virtual: every turn takes the same virtual
+ * duration, so a TIME deadline costs only the computation of the parties.
+ */
+public class Session implements Callable<SessionResult> {
+
+    private String league;
+    private int index;
+    private StandIn standIn;
+    private List<ProfileRepository.Profile> profiles; // of every party, the agent's first
+    private NashPoint nashPoint;
+    private boolean timeDeadline;
+    private int deadlineValue;
+    private double turnDuration; // virtual seconds (TIME) or rounds (ROUND) a turn takes
+    private long seed;
+    private StrategyParameters parameters; // of the agent, null for those of -Dgroup1.parameters or the defaults
+
+    public Session(String league, int index, StandIn standIn, List<ProfileRepository.Profile> profiles, NashPoint nashPoint,
+                   boolean timeDeadline, int deadlineValue, double turnDuration, long seed) {
+
+        this(league, index, standIn, profiles, nashPoint, timeDeadline, deadlineValue, turnDuration, seed, null);
+    }
+
+    public Session(String league, int index, StandIn standIn, List<ProfileRepository.Profile> profiles, NashPoint nashPoint,
+                   boolean timeDeadline, int deadlineValue, double turnDuration, long seed, StrategyParameters parameters) {
+
+        this.league = league;
+        this.index = index;
+        this.standIn = standIn;
+        this.profiles = profiles;
+        this.nashPoint = nashPoint;
+        this.timeDeadline = timeDeadline;
+        this.deadlineValue = deadlineValue;
+        this.turnDuration = turnDuration;
+        this.seed = seed;
+        this.parameters = parameters;
+    }
+
+    @Override
+    public SessionResult call() {
+
+        long start = System.nanoTime();
+        int partyCount = this.profiles.size();
+        VirtualTimeLine timeLine = new VirtualTimeLine(this.timeDeadline ? TimeLineInfo.Type.Time : TimeLineInfo.Type.Rounds, this.deadlineValue);
+        Deadline deadline = new Deadline(this.deadlineValue, this.timeDeadline ? DeadlineType.TIME : DeadlineType.ROUND);
+
+        AbstractNegotiationParty[] parties = new AbstractNegotiationParty[partyCount];
+        AgentID[] ids = new AgentID[partyCount];
+        Bid agreement = null;
+        int rounds = 0;
+        String error = null;
+
+        try {
+            for (int p = 0; p < partyCount; p++) {
+                ProfileRepository.Profile profile = this.profiles.get(p);
+                ids[p] = new AgentID(p == 0 ? "Agent1@" + this.index : this.standIn.getName() + p + "@" + this.index);
+                parties[p] = p == 0 ? (this.parameters == null ? new Agent1() : new Agent1(this.parameters)) : this.standIn.create();
+
+                // Only the agent negotiates under preference uncertainty; the stand-ins know their profile
+                UserModel userModel = p == 0 && profile.isUncertain()
+                        ? new UserModel(profile.getTemplateDomain().randomRanking(profile.getRankingSize(), new Random(this.seed)))
+                        : null;
+
+                parties[p].init(new NegotiationInfo(profile.getTemplateDomain().getUtilitySpace(), userModel, null,
+                        deadline, timeLine, this.seed + p, ids[p], null));
+            }
+
+            Bid onTable = null;
+            int accepts = 0;
+
+            negotiation:
+            while (timeLine.getTime() < 1.0) {
+                rounds++;
+
+                for (int p = 0; p < partyCount; p++) {
+                    List<Class<? extends Action>> possibleActions = new ArrayList<Class<? extends Action>>();
+                    if (onTable != null)
+                        possibleActions.add(Accept.class);
+                    possibleActions.add(Offer.class);
+                    possibleActions.add(EndNegotiation.class);
+
+                    Action action = parties[p].chooseAction(possibleActions);
+                    timeLine.advance(this.turnDuration);
+
+                    if (action instanceof Offer) {
+                        onTable = ((Offer) action).getBid();
+                        accepts = 0;
+                    } else if (action instanceof Accept && onTable != null) {
+                        accepts++;
+                    } else {
+                        break negotiation; // ended, or a protocol violation
+                    }
+
+                    for (int other = 0; other < partyCount; other++) {
+                        if (other != p)
+                            parties[other].receiveMessage(ids[p], action);
+                    }
+
+                    if (accepts == partyCount - 1) {
+                        agreement = onTable;
+                        break negotiation;
+                    }
+
+                    if (timeLine.getTime() >= 1.0)
+                        break negotiation;
+                }
+            }
+        } catch (Throwable e) {
+            error = e.toString();
+        } finally {
+            for (AbstractNegotiationParty party : parties) {
+                if (party != null) {
+                    try {
+                        party.negotiationEnded(agreement);
+                    } catch (Throwable e) {
+                        if (error == null)
+                            error = e.toString();
+                    }
+                }
+            }
+        }
+
+        double[] utilities = new double[partyCount];
+
+        for (int p = 0; p < partyCount; p++) {
+            utilities[p] = agreement == null
+                    ? this.profiles.get(p).getTemplateDomain().getUtilitySpace().getReservationValue()
+                    : this.profiles.get(p).getTemplateDomain().getUtilitySpace().getUtility(agreement);
+        }
+
+        return new SessionResult(this.league, this.index, this.standIn, this.profiles.get(0).getName(),
+                this.profiles.get(1).getName(), agreement != null, utilities, this.nashPoint.distance(utilities),
+                rounds, (System.nanoTime() - start) / 1e6, error);
+    }
+
+}
@@ -0,0 +1,62 @@
+package group1.sim;
+
+import java.util.Locale;
+
+/**
+ * The outcome of a simulated session. Utilities are undiscounted, under the real profiles;
+ * without agreement they are the reservation values.
+ */
+public class SessionResult {
+
+    public static final String CSV_HEADER = "league,session,opponent,agent_profile,opponent_profile,agreement,"
+            + "agent_utility,opponent_utility,nash_distance,rounds,wall_ms,error";
+
+    private String league;
+    private int session;
+    private StandIn standIn;
+    private String agentProfile;
+    private String opponentProfile;
+    private boolean agreement;
+    private double[] utilities; // of every party, the agent's first
+    private double nashDistance;
+    private int rounds;
+    private double wallMillis;
+    private String error;
+
+    public SessionResult(String league, int session, StandIn standIn, String agentProfile, String opponentProfile, boolean agreement,
+                         double[] utilities, double nashDistance, int rounds, double wallMillis, String error) {
+
+        this.league = league;
+        this.session = session;
+        this.standIn = standIn;
+        this.agentProfile = agentProfile;
+        this.opponentProfile = opponentProfile;
+        this.agreement = agreement;
+        this.utilities = utilities;
+        this.nashDistance = nashDistance;
+        this.rounds = rounds;
+        this.wallMillis = wallMillis;
+        this.error = error;
+    }
+
+    public StandIn getStandIn() { return this.standIn; }
+
+    public boolean isAgreement() { return this.agreement; }
+
+    public double getAgentUtility() { return this.utilities[0]; }
+
+    public double getNashDistance() { return this.nashDistance; }
+
+    public int getRounds() { return this.rounds; }
+
+    public double getWallMillis() { return this.wallMillis; }
+
+    public boolean isFailed() { return this.error != null; }
+
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%s,%d,%s,%s,%s,%b,%.4f,%.4f,%.4f,%d,%.1f,%s", this.league, this.session,
+                this.standIn.getName(), this.agentProfile, this.opponentProfile, this.agreement, this.utilities[0],
+                this.utilities[1], this.nashDistance, this.rounds, this.wallMillis,
+                this.error == null ? "" : "\"" + this.error.replace("\"", "'") + "\"");
+    }
+}
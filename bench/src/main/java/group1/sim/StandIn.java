@@ -0,0 +1,22 @@
+package group1.sim;
+
+import genius.core.parties.AbstractNegotiationParty;
+
+/**
+ * The local opponents the agent is simulated against, in place of the tournament's own opponents.
+ */
+public enum StandIn {
+
+    BOULWARE, CONCEDER, RANDOM;
+
+    public AbstractNegotiationParty create() {
+
+        switch (this) {
+            case BOULWARE: return TimeDependentParty.boulware();
+            case CONCEDER: return TimeDependentParty.conceder();
+            default: return new RandomParty();
+        }
+    }
+
+    public String getName() { return name().toLowerCase(); }
+}
@@ -0,0 +1,100 @@
+package group1.sim;
+
+import group1.BidEncoder;
+import group1.UtilityBandSampler;
+import group1.UtilityTable;
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.Offer;
+import genius.core.parties.AbstractNegotiationParty;
+import genius.core.parties.NegotiationInfo;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Stand-in opponent conceding with time: its target utility is
+ *   1 - (1 - minimum) * t^(1 / e)
+ * so e < 1 concedes late (Boulware) and e > 1 concedes early (Conceder). It offers random bids just
+ * above its target and accepts an offer worth at least its target or its own next offer.
+ */
+public class TimeDependentParty extends AbstractNegotiationParty {
+
+    private static final double BAND_WIDTH = 0.05; // width of the utility band offers are drawn from
+
+    private double concession; // e
+    private double minimumUtility;
+
+    private BidEncoder bidEncoder;
+    private UtilityTable utilityTable;
+    private UtilityBandSampler bidSampler;
+    private SplittableRandom random;
+    private Bid lastReceivedBid;
+
+    public TimeDependentParty(double concession, double minimumUtility) {
+
+        this.concession = concession;
+        this.minimumUtility = minimumUtility;
+    }
+
+    /**
+     * @return a party conceding late
+     */
+    public static TimeDependentParty boulware() { return new TimeDependentParty(0.2, 0.5); }
+
+    /**
+     * @return a party conceding early
+     */
+    public static TimeDependentParty conceder() { return new TimeDependentParty(2.0, 0.5); }
+
+    @Override
+    public void init(NegotiationInfo info) {
+
+        super.init(info);
+        this.bidEncoder = new BidEncoder(getDomain());
+        this.utilityTable = UtilityTable.fromUtilitySpace(this.bidEncoder, this.utilitySpace);
+        this.bidSampler = new UtilityBandSampler(this.utilityTable);
+        this.random = new SplittableRandom(info.getRandomSeed());
+    }
+
+    @Override
+    public Action chooseAction(List<Class<? extends Action>> possibleActions) {
+
+        double target = getTargetUtility();
+        int[] bid = new int[this.bidEncoder.getIssueCount()];
+
+        if (!this.bidSampler.sample(target, target + BAND_WIDTH, this.random, bid))
+            this.bidSampler.sample(target, this.bidSampler.getMaxUtility(), this.random, bid);
+
+        if (this.lastReceivedBid != null && possibleActions.contains(Accept.class)) {
+            double receivedUtility = this.utilityTable.getUtility(this.bidEncoder.encode(this.lastReceivedBid));
+
+            if (receivedUtility >= target || receivedUtility >= this.utilityTable.getUtility(bid))
+                return new Accept(getPartyId(), this.lastReceivedBid);
+        }
+        return new Offer(getPartyId(), this.bidEncoder.decode(bid));
+    }
+
+    private double getTargetUtility() {
+
+        double maxUtility = this.bidSampler.getMaxUtility();
+        double time = Math.min(1.0, getTimeLine().getTime());
+        return maxUtility - (maxUtility - this.minimumUtility) * Math.pow(time, 1.0 / this.concession);
+    }
+
+    @Override
+    public void receiveMessage(AgentID sender, Action action) {
+
+        super.receiveMessage(sender, action);
+
+        if (action instanceof Offer)
+            this.lastReceivedBid = ((Offer) action).getBid();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Time-dependent stand-in (e = " + this.concession + ")";
+    }
+}
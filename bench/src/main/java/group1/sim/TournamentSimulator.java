@@ -0,0 +1,160 @@
+package group1.sim;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the tournaments of league*.xml configurations headless and in process, with Agent1 as the
+ * first party of every session (the configurations' groupn.MyAgent) and local stand-ins (Boulware,
+ * Conceder, Random) in place of the other parties, whose classes are not available here.
+ * Every stand-in plays every rotation of the profiles over the parties, for the configured repeats
+ * times the -repeats factor. Sessions run in parallel on a virtual clock; one CSV line is printed
+ * per session, in order, and a summary per stand-in goes to standard error.
+ * Sessions start cold unless -store names a model store for them to share, so results do not depend on earlier runs.
+ * With -trace, the agent records every session to a trace in the given directory, for TraceReplay.
+ *
+ * Usage: TournamentSimulator [-repeats n] [-threads n] [-turn-ms ms] [-opponents boulware,conceder,random] [-store file]
+ *        [-trace directory] [league.xml...]
+ * Run from the repository root (or bench); without files, all league*.xml of the root are run.
+ */
+public class TournamentSimulator {
+
+    private static final double DEFAULT_TURN_MILLIS = 10.0; // virtual time a turn takes under a TIME deadline
+
+    public static void main(String[] args) throws Exception {
+
+        int repeats = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double turnMillis = DEFAULT_TURN_MILLIS;
+        List<StandIn> standIns = new ArrayList<StandIn>(Arrays.asList(StandIn.values()));
+        List<File> leagueFiles = new ArrayList<File>();
+        String store = "none";
+
+        for (int a = 0; a < args.length; a++) {
+            switch (args[a]) {
+                case "-repeats": repeats = Integer.parseInt(args[++a]); break;
+                case "-threads": threads = Integer.parseInt(args[++a]); break;
+                case "-turn-ms": turnMillis = Double.parseDouble(args[++a]); break;
+                case "-store": store = args[++a]; break;
+                case "-trace": System.setProperty("group1.trace", args[++a]); break;
+                case "-opponents":
+                    standIns.clear();
+                    for (String name : args[++a].split(",")) { standIns.add(StandIn.valueOf(name.trim().toUpperCase())); }
+                    break;
+                default: leagueFiles.add(new File(args[a]));
+            }
+        }
+
+        System.setProperty("group1.store", store);
+
+        File root = new File("domainrepository.xml").exists() ? new File(".") : new File("..");
+
+        if (leagueFiles.isEmpty()) {
+            File[] files = root.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File directory, String name) { return name.matches("league\\d+\\.xml"); }
+            });
+            Arrays.sort(files);
+            leagueFiles.addAll(Arrays.asList(files));
+        }
+
+        List<Session> sessions = createSessions(new ProfileRepository(root), leagueFiles, standIns, repeats, turnMillis);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<SessionResult>> futures = new ArrayList<Future<SessionResult>>();
+        long start = System.nanoTime();
+
+        for (Session session : sessions) { futures.add(executor.submit(session)); }
+
+        Map<StandIn, Summary> summaries = new EnumMap<StandIn, Summary>(StandIn.class);
+        System.out.println(SessionResult.CSV_HEADER);
+
+        for (Future<SessionResult> future : futures) {
+            SessionResult result = future.get();
+            System.out.println(result.toCsv());
+
+            if (!summaries.containsKey(result.getStandIn()))
+                summaries.put(result.getStandIn(), new Summary());
+            summaries.get(result.getStandIn()).add(result);
+        }
+        executor.shutdown();
+
+        System.err.printf("%d sessions on %d threads in %.1f s%n", sessions.size(), threads, (System.nanoTime() - start) / 1e9);
+        for (Map.Entry<StandIn, Summary> entry : summaries.entrySet()) {
+            System.err.printf("%-9s %s%n", entry.getKey().getName(), entry.getValue());
+        }
+    }
+
+    private static List<Session> createSessions(ProfileRepository repository, List<File> leagueFiles, List<StandIn> standIns,
+                                                int repeats, double turnMillis) throws Exception {
+
+        List<Session> sessions = new ArrayList<Session>();
+
+        for (File leagueFile : leagueFiles) {
+            for (LeagueConfig config : LeagueConfig.parse(leagueFile)) {
+                List<ProfileRepository.Profile> profiles = new ArrayList<ProfileRepository.Profile>();
+
+                for (String url : config.getProfileUrls()) { profiles.add(repository.get(url)); }
+
+                int partyCount = Math.min(config.getPartiesPerSession(), profiles.size());
+                double turnDuration = config.isTimeDeadline() ? turnMillis / 1000.0 : 1.0 / partyCount;
+
+                for (int rotation = 0; rotation < profiles.size(); rotation++) {
+                    List<ProfileRepository.Profile> assigned = new ArrayList<ProfileRepository.Profile>();
+
+                    for (int p = 0; p < partyCount; p++) { assigned.add(profiles.get((rotation + p) % profiles.size())); }
+
+                    NashPoint nashPoint = NashPoint.compute(assigned);
+
+                    for (int repeat = 0; repeat < config.getRepeats() * repeats; repeat++) {
+                        for (StandIn standIn : standIns) {
+                            int index = sessions.size();
+                            sessions.add(new Session(config.getName(), index, standIn, assigned, nashPoint,
+                                    config.isTimeDeadline(), config.getDeadlineValue(), turnDuration, index));
+                        }
+                    }
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Means over the sessions against one stand-in.
+     */
+    private static class Summary {
+
+        private int sessions;
+        private int agreements;
+        private int failures;
+        private double agentUtility;
+        private double nashDistance;
+        private double rounds;
+        private double wallMillis;
+
+        void add(SessionResult result) {
+
+            this.sessions++;
+            this.agreements += result.isAgreement() ? 1 : 0;
+            this.failures += result.isFailed() ? 1 : 0;
+            this.agentUtility += result.getAgentUtility();
+            this.nashDistance += result.getNashDistance();
+            this.rounds += result.getRounds();
+            this.wallMillis += result.getWallMillis();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sessions=%d agreements=%.2f utility=%.4f nash_distance=%.4f rounds=%.0f wall_ms=%.1f failed=%d",
+                    this.sessions, this.agreements / (double) this.sessions, this.agentUtility / this.sessions,
+                    this.nashDistance / this.sessions, this.rounds / this.sessions, this.wallMillis / this.sessions, this.failures);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package group1.sim;
+
+import group1.TraceRecorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A session trace written by TraceRecorder, read back into memory.
+ */
+public class Trace {
+
+    private long seed;
+    private boolean timeDeadline;
+    private double totalTime;
+    private int issueCount;
+    private long domainFingerprint;
+    private double rankingLowUtility;
+    private double rankingHighUtility;
+    private List<int[]> ranking; // encoded bids from worst to best, empty without preference uncertainty
+    private Properties parameters; // the strategy parameters of the agent
+    private byte[] modelStore; // the model store file as read at the start, empty without a store
+    private List<Record> records;
+
+    /**
+     * One event of the session.
+     */
+    public static class Record {
+
+        private byte type;
+        private double time;
+        private int sender = TraceRecorder.NO_SENDER; // sender index, or the index announced by a SENDER record
+        private String name; // of a SENDER record
+        private double targetUtility; // of a CHOOSE record
+        private long opponentModelHash; // of a CHOOSE record
+        private int[] bid; // of a RECEIVE_OFFER or CHOOSE record
+
+        public byte getType() { return this.type; }
+
+        public double getTime() { return this.time; }
+
+        public int getSender() { return this.sender; }
+
+        public String getName() { return this.name; }
+
+        public double getTargetUtility() { return this.targetUtility; }
+
+        public long getOpponentModelHash() { return this.opponentModelHash; }
+
+        public int[] getBid() { return this.bid; }
+
+        public boolean isChoice() { return this.type == TraceRecorder.CHOOSE_OFFER || this.type == TraceRecorder.CHOOSE_ACCEPT; }
+
+        /**
+         * @return whether both records have the same type and fields; times are compared exactly
+         */
+        public boolean matches(Record other) {
+
+            return this.type == other.type && this.time == other.time && this.sender == other.sender
+                    && (this.name == null ? other.name == null : this.name.equals(other.name))
+                    && Double.compare(this.targetUtility, other.targetUtility) == 0
+                    && this.opponentModelHash == other.opponentModelHash && Arrays.equals(this.bid, other.bid);
+        }
+
+        @Override
+        public String toString() {
+
+            StringBuilder builder = new StringBuilder(typeName(this.type)).append(String.format(" t=%.6f", this.time));
+
+            if (this.type == TraceRecorder.SENDER)
+                builder.append(" index=").append(this.sender).append(" name=").append(this.name);
+            else if (!isChoice() && this.type != TraceRecorder.ESTIMATE_INSTALLED)
+                builder.append(" sender=").append(this.sender);
+
+            if (isChoice())
+                builder.append(String.format(" target=%.6f models=%016x", this.targetUtility, this.opponentModelHash));
+
+            if (this.bid != null)
+                builder.append(" bid=").append(Arrays.toString(this.bid));
+
+            return builder.toString();
+        }
+    }
+
+    private Trace() {
+        this.ranking = new ArrayList<int[]>();
+        this.parameters = new Properties();
+        this.records = new ArrayList<Record>();
+    }
+
+    /**
+     * Read a trace; a record cut off at the end of the file, as left by a crash, is ignored.
+     */
+    public static Trace read(File file) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        Trace trace = new Trace();
+
+        if (buffer.getInt() != TraceRecorder.MAGIC || buffer.getInt() != TraceRecorder.VERSION)
+            throw new IOException("Not a version " + TraceRecorder.VERSION + " trace: " + file);
+
+        trace.seed = buffer.getLong();
+        trace.timeDeadline = buffer.get() != 0;
+        trace.totalTime = buffer.getDouble();
+        trace.issueCount = buffer.getInt();
+        trace.domainFingerprint = buffer.getLong();
+        int rankingSize = buffer.getInt();
+
+        if (rankingSize > 0) {
+            trace.rankingLowUtility = buffer.getDouble();
+            trace.rankingHighUtility = buffer.getDouble();
+
+            for (int r = 0; r < rankingSize; r++) { trace.ranking.add(readBid(buffer, trace.issueCount)); }
+        }
+
+        int parameterCount = buffer.getInt();
+        for (int p = 0; p < parameterCount; p++) { trace.parameters.setProperty(readString(buffer), readString(buffer)); }
+        trace.modelStore = new byte[buffer.getInt()];
+        buffer.get(trace.modelStore);
+
+        try {
+            while (buffer.hasRemaining()) { trace.records.add(readRecord(buffer, trace.issueCount)); }
+        } catch (BufferUnderflowException e) {
+            // truncated last record
+        }
+        return trace;
+    }
+
+    private static Record readRecord(ByteBuffer buffer, int issueCount) throws IOException {
+
+        Record record = new Record();
+        record.type = buffer.get();
+        record.time = buffer.getDouble();
+
+        switch (record.type) {
+            case TraceRecorder.SENDER:
+                record.sender = buffer.getInt();
+                record.name = readString(buffer);
+                break;
+            case TraceRecorder.RECEIVE_OFFER:
+                record.sender = buffer.getInt();
+                record.bid = readBid(buffer, issueCount);
+                break;
+            case TraceRecorder.RECEIVE_ACCEPT:
+            case TraceRecorder.RECEIVE_OTHER:
+                record.sender = buffer.getInt();
+                break;
+            case TraceRecorder.CHOOSE_OFFER:
+            case TraceRecorder.CHOOSE_ACCEPT:
+                record.targetUtility = buffer.getDouble();
+                record.opponentModelHash = buffer.getLong();
+                record.bid = readBid(buffer, issueCount);
+                break;
+            case TraceRecorder.ESTIMATE_INSTALLED:
+                break;
+            default:
+                throw new IOException("Unknown record type " + record.type + " at byte " + (buffer.position() - 9));
+        }
+        return record;
+    }
+
+    private static int[] readBid(ByteBuffer buffer, int issueCount) {
+
+        int[] bid = new int[issueCount];
+        for (int i = 0; i < issueCount; i++) { bid[i] = buffer.getInt(); }
+        return bid;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static String typeName(byte type) {
+
+        switch (type) {
+            case TraceRecorder.SENDER: return "SENDER";
+            case TraceRecorder.RECEIVE_OFFER: return "RECEIVE_OFFER";
+            case TraceRecorder.RECEIVE_ACCEPT: return "RECEIVE_ACCEPT";
+            case TraceRecorder.RECEIVE_OTHER: return "RECEIVE_OTHER";
+            case TraceRecorder.CHOOSE_OFFER: return "CHOOSE_OFFER";
+            case TraceRecorder.CHOOSE_ACCEPT: return "CHOOSE_ACCEPT";
+            case TraceRecorder.ESTIMATE_INSTALLED: return "ESTIMATE_INSTALLED";
+            default: return "UNKNOWN(" + type + ")";
+        }
+    }
+
+    public long getSeed() { return this.seed; }
+
+    public boolean isTimeDeadline() { return this.timeDeadline; }
+
+    public double getTotalTime() { return this.totalTime; }
+
+    public int getIssueCount() { return this.issueCount; }
+
+    public long getDomainFingerprint() { return this.domainFingerprint; }
+
+    public double getRankingLowUtility() { return this.rankingLowUtility; }
+
+    public double getRankingHighUtility() { return this.rankingHighUtility; }
+
+    public List<int[]> getRanking() { return this.ranking; }
+
+    public Properties getParameters() { return this.parameters; }
+
+    public byte[] getModelStore() { return this.modelStore; }
+
+    public List<Record> getRecords() { return this.records; }
+}
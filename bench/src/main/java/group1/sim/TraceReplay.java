@@ -0,0 +1,221 @@
+package group1.sim;
+
+import group1.Agent1;
+import group1.BidEncoder;
+import group1.ModelStore;
+import group1.StrategyParameters;
+import group1.TraceRecorder;
+import group1.bench.TemplateDomain;
+import group1.bench.VirtualTimeLine;
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.Deadline;
+import genius.core.DeadlineType;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.EndNegotiation;
+import genius.core.actions.Offer;
+import genius.core.parties.NegotiationInfo;
+import genius.core.timeline.TimeLineInfo;
+import genius.core.uncertainty.BidRanking;
+import genius.core.uncertainty.UserModel;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays a trace recorded with -Dgroup1.trace through a fresh Agent1, without opponents: the agent is
+ * initialised with the recorded seed, deadline, ranking, strategy parameters and a copy of the recorded
+ * model store, the timeline is set to the recorded time of every event, the received messages are delivered
+ * and chooseAction is called where the agent chose an action. The estimated utility space is held back until
+ * the ESTIMATE_INSTALLED record, where the replay waits for the estimation, so it is installed at the
+ * same point however long the estimation takes. The replay is traced itself and compared with the recording record by record (actions, bids,
+ * target utilities and opponent model hashes), and the latency of chooseAction is reported, so a trace
+ * serves as a reproducible performance regression test.
+ *
+ * What depends on wall-clock time is not reproduced: the epochs the streaming learner fits within its time
+ * budget, and in the SAMPLING and EXACT bidding modes the work done within the compute budget.
+ * The first record that differs is printed.
+ *
+ * Usage: TraceReplay [-repeats n] trace domain.xml profile.xml
+ * The domain and profile are those of the agent in the traced session.
+ */
+public class TraceReplay {
+
+    public static void main(String[] args) throws Exception {
+
+        int repeats = 1;
+        List<String> files = new ArrayList<String>();
+
+        for (int a = 0; a < args.length; a++) {
+            if ("-repeats".equals(args[a])) { repeats = Integer.parseInt(args[++a]); }
+            else { files.add(args[a]); }
+        }
+
+        if (files.size() != 3) {
+            System.err.println("Usage: TraceReplay [-repeats n] trace domain.xml profile.xml");
+            System.exit(2);
+        }
+
+        Trace trace = Trace.read(new File(files.get(0)));
+        TemplateDomain templateDomain = new TemplateDomain("traced", files.get(1), files.get(2));
+        BidEncoder encoder = new BidEncoder(templateDomain.getDomain());
+
+        if (encoder.getIssueCount() != trace.getIssueCount() || ModelStore.fingerprint(encoder) != trace.getDomainFingerprint())
+            throw new IllegalArgumentException("The trace was recorded on another domain than " + files.get(1));
+
+        StrategyParameters parameters = new StrategyParameters().with(trace.getParameters());
+
+        for (int repeat = 0; repeat < repeats; repeat++) {
+            File directory = Files.createTempDirectory("group1-replay").toFile();
+            System.setProperty("group1.trace", directory.getPath());
+
+            // Every repeat starts from the store as recorded, as the replayed session saves into it
+            File store = null;
+            if (trace.getModelStore().length > 0) {
+                store = File.createTempFile("group1-replay", ".bin");
+                Files.write(store.toPath(), trace.getModelStore());
+            }
+            System.setProperty("group1.store", store == null ? "none" : store.getPath());
+
+            long[] latencies = replay(trace, templateDomain, encoder, parameters);
+
+            if (store != null) {
+                store.delete();
+                new File(store.getPath() + ".lock").delete();
+            }
+
+            File[] replayed = directory.listFiles();
+
+            if (replayed == null || replayed.length != 1)
+                throw new IllegalStateException("The replay did not leave one trace in " + directory);
+
+            Trace replayedTrace = Trace.read(replayed[0]);
+            report(trace, replayedTrace, latencies);
+
+            for (File file : replayed) { file.delete(); }
+            directory.delete();
+        }
+        System.clearProperty("group1.trace");
+        System.clearProperty("group1.store");
+    }
+
+    /**
+     * Run the agent through the recorded events.
+     *
+     * @return the latency of every chooseAction, in nanoseconds
+     */
+    private static long[] replay(Trace trace, TemplateDomain templateDomain, BidEncoder encoder, StrategyParameters parameters) {
+
+        VirtualTimeLine timeLine = new VirtualTimeLine(trace.isTimeDeadline() ? TimeLineInfo.Type.Time : TimeLineInfo.Type.Rounds,
+                trace.getTotalTime());
+        Deadline deadline = new Deadline((int) trace.getTotalTime(), trace.isTimeDeadline() ? DeadlineType.TIME : DeadlineType.ROUND);
+
+        UserModel userModel = null;
+
+        if (!trace.getRanking().isEmpty()) {
+            List<Bid> bids = new ArrayList<Bid>();
+            for (int[] bid : trace.getRanking()) { bids.add(encoder.decode(bid)); }
+            userModel = new UserModel(new BidRanking(bids, trace.getRankingLowUtility(), trace.getRankingHighUtility()));
+        }
+
+        AgentID agentId = new AgentID("Agent1");
+        Agent1 agent = new Agent1(parameters);
+        agent.holdEstimates();
+        agent.init(new NegotiationInfo(templateDomain.getUtilitySpace(), userModel, null, deadline, timeLine, trace.getSeed(), agentId, null));
+
+        List<Class<? extends Action>> possibleActions = new ArrayList<Class<? extends Action>>();
+        possibleActions.add(Accept.class);
+        possibleActions.add(Offer.class);
+        possibleActions.add(EndNegotiation.class);
+
+        Map<Integer, AgentID> senders = new HashMap<Integer, AgentID>();
+        List<Long> latencies = new ArrayList<Long>();
+        Bid onTable = null;
+        Bid agreement = null;
+
+        for (Trace.Record record : trace.getRecords()) {
+            timeLine.setTime(record.getTime());
+            AgentID sender = senders.get(record.getSender());
+
+            switch (record.getType()) {
+                case TraceRecorder.SENDER:
+                    senders.put(record.getSender(), new AgentID(record.getName()));
+                    break;
+                case TraceRecorder.RECEIVE_OFFER:
+                    onTable = encoder.decode(record.getBid());
+                    agent.receiveMessage(sender, new Offer(sender, onTable));
+                    break;
+                case TraceRecorder.RECEIVE_ACCEPT:
+                    agent.receiveMessage(sender, new Accept(sender, onTable));
+                    break;
+                case TraceRecorder.RECEIVE_OTHER:
+                    agent.receiveMessage(sender, new EndNegotiation(sender));
+                    break;
+                case TraceRecorder.CHOOSE_OFFER:
+                case TraceRecorder.CHOOSE_ACCEPT:
+                    long start = System.nanoTime();
+                    Action action = agent.chooseAction(possibleActions);
+                    latencies.add(System.nanoTime() - start);
+
+                    if (action instanceof Offer)
+                        onTable = ((Offer) action).getBid();
+                    else if (action instanceof Accept)
+                        agreement = onTable;
+                    break;
+                case TraceRecorder.ESTIMATE_INSTALLED:
+                    agent.installPendingEstimate();
+                    break;
+                default:
+                    break;
+            }
+        }
+        agent.negotiationEnded(agreement);
+
+        long[] result = new long[latencies.size()];
+        for (int i = 0; i < result.length; i++) { result[i] = latencies.get(i); }
+        return result;
+    }
+
+    private static void report(Trace recorded, Trace replayed, long[] latencies) {
+
+        List<Trace.Record> expected = recorded.getRecords();
+        List<Trace.Record> actual = replayed.getRecords();
+        int divergence = -1;
+
+        for (int r = 0; r < Math.max(expected.size(), actual.size()) && divergence < 0; r++) {
+            if (r >= expected.size() || r >= actual.size() || !expected.get(r).matches(actual.get(r)))
+                divergence = r;
+        }
+
+        Arrays.sort(latencies);
+        double mean = 0.0;
+        for (long latency : latencies) { mean += latency / (double) latencies.length; }
+
+        System.out.printf("%d records, %d choices: chooseAction mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                expected.size(), latencies.length, mean / 1e3, percentile(latencies, 0.5) / 1e3,
+                percentile(latencies, 0.99) / 1e3, percentile(latencies, 1.0) / 1e3);
+
+        if (divergence < 0) {
+            System.out.println("replay identical to the recording");
+        } else {
+            System.out.println("first difference at record " + divergence + ":");
+            System.out.println("  recorded: " + (divergence < expected.size() ? expected.get(divergence) : "end of trace"));
+            System.out.println("  replayed: " + (divergence < actual.size() ? actual.get(divergence) : "end of trace"));
+        }
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+
+        if (sorted.length == 0)
+            return 0.0;
+
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
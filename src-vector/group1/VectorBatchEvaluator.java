@@ -0,0 +1,75 @@
+package group1;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * Batch evaluator on the Vector API: every issue's part of a table is gathered for a vector of
+ * candidates at a time, indexed by their value indices, and added up lane-wise.
+ *
+ * Java 16+ and jdk.incubator.vector only, so it lives outside ../src (which targets Java 8) and is
+ * compiled by the vector profile of the benchmarks; BatchEvaluator.create loads it reflectively
+ * when it is present and the module is added (--add-modules jdk.incubator.vector).
+ */
+public class VectorBatchEvaluator implements BatchEvaluator {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void evaluate(CandidatePool pool, UtilityTable utilityTable, OpponentUtilities opponentUtilities,
+                         double[] utilities, double[] opponentUtilityProducts, double[] nashProducts) {
+
+        int size = pool.size();
+        int bound = SPECIES.loopBound(size);
+
+        sum(pool, utilityTable, utilities);
+        Arrays.fill(opponentUtilityProducts, 0, size, 1.0);
+
+        // The Nash products hold the utilities of one opponent at a time before they are final
+        for (int k = 0; k < opponentUtilities.size(); k++) {
+            sum(pool, opponentUtilities.getTable(k), nashProducts);
+
+            int c = 0;
+            for (; c < bound; c += SPECIES.length()) {
+                DoubleVector.fromArray(SPECIES, opponentUtilityProducts, c)
+                        .mul(DoubleVector.fromArray(SPECIES, nashProducts, c))
+                        .intoArray(opponentUtilityProducts, c);
+            }
+            for (; c < size; c++) { opponentUtilityProducts[c] *= nashProducts[c]; }
+        }
+
+        int c = 0;
+        for (; c < bound; c += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, utilities, c)
+                    .mul(DoubleVector.fromArray(SPECIES, opponentUtilityProducts, c))
+                    .intoArray(nashProducts, c);
+        }
+        for (; c < size; c++) { nashProducts[c] = utilities[c] * opponentUtilityProducts[c]; }
+    }
+
+    private static void sum(CandidatePool pool, UtilityTable table, double[] sums) {
+
+        BidEncoder encoder = table.getEncoder();
+        double[] values = table.getValues();
+        int size = pool.size();
+        int bound = SPECIES.loopBound(size);
+
+        Arrays.fill(sums, 0, size, 0.0);
+
+        for (int i = 0; i < pool.getIssueCount(); i++) {
+            int[] column = pool.getColumn(i);
+            int offset = encoder.getOffset(i);
+
+            int c = 0;
+            for (; c < bound; c += SPECIES.length()) {
+                // Gather values[offset + column[c + lane]] for every lane
+                DoubleVector.fromArray(SPECIES, values, offset, column, c)
+                        .add(DoubleVector.fromArray(SPECIES, sums, c))
+                        .intoArray(sums, c);
+            }
+            for (; c < size; c++) { sums[c] += values[offset + column[c]]; }
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package group1;
 
+import java.io.File;
 import java.io.FileDescriptor;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 import genius.core.AgentID;
 import genius.core.Bid;
@@ -11,8 +14,6 @@ import genius.core.Domain;
 import genius.core.actions.Accept;
 import genius.core.actions.Action;
 import genius.core.actions.Offer;
-import genius.core.bidding.BidDetails;
-import genius.core.boaframework.SortedOutcomeSpace;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
 import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
@@ -30,26 +31,24 @@ public class Agent1 extends AbstractNegotiationParty
 	 * § OPPONENT TRACKING VARIABLES
 	 */
 	private Bid lastReceivedBid = null;
+	private int[] lastReceivedEncodedBid; // encoded once on arrival
 	private double lastReceivedBidUtility;
-	private OpponentModel opponentModel;
 
-	/**
-	 * § SETTINGS (CONSTANTS)
-	 */
-	// The percentage of the time during which the agent will only offer the maximum utility.
-	private final double HARDHEADED_PERCENTAGE = 0.2;
-
-	// The buffer size of the bestGeneratedBids list.
-	// The maximum amount of bids the agent will save.
-	private final int MAX_BEST_BIDS_BUFFER_SIZE = 100;
+	// The parties that made or accepted the last received bid while it is the offer on the table.
+	private Set<AgentID> lastReceivedBidAgreedBy = new HashSet<AgentID>();
+	private boolean lastReceivedBidOnTable;
 
-	// The number of bids to generate each round to populate the bestGeneratedBids array.
-	private final int AMOUNT_OF_BIDS_TO_GENERATE = 100;
+	// One model per opponent; messages may arrive from several parties of a multilateral session.
+	private ConcurrentHashMap<AgentID, OpponentModel> opponentModels = new ConcurrentHashMap<AgentID, OpponentModel>();
 
-	// The frequency for recalculating the nash product with the best saved bids from the opponent.
-	private final int FREQUENCY_RECALCULATE_NASH_PRODUCT = 10;
+	// Snapshot of the opponents' utility tables, replaced when one of them changes.
+	private OpponentUtilities opponentUtilities;
 
-	private final double KA_MINIMUM_STARTING_TARGET_UTILITY = 0.85;
+	/**
+	 * § SETTINGS
+	 */
+	// The tunable constants of the strategy: the defaults, or those set by -Dgroup1.parameters.
+	private final StrategyParameters parameters;
 
 	/**
 	 * § BIDDING VARIABLES
@@ -57,19 +56,91 @@ public class Agent1 extends AbstractNegotiationParty
 	// The amount of offers made by the agent.
 	private int counterOffersMade;
 
+	// Our utility of the bid last generated, and the target utility it was generated for.
+	private double lastGeneratedBidUtility;
+	private double lastTargetUtility;
+
+	// The amount of bids generated since the nash product of the best saved bids was last recalculated.
+	private int roundsSinceNashProductUpdate;
+
+	// Decides how many bids to generate and how often to recalculate the nash product, from the time left.
+	private ComputeBudget computeBudget;
+
 	// The best bids generated by us; 'best' defined by the Nash product.
-	private List<BidDetails> bestGeneratedBids;
+	private TopKBids bestGeneratedBids;
+
+	// Used to generate random numbers in the agent implementation; candidate generation splits its streams off it.
+	private SplittableRandom random;
+
+	// Encodes bids as an int[] of value indices, built once from the domain.
+	private BidEncoder bidEncoder;
+
+	// Our (estimated) utility of every value, used to score encoded bids.
+	private UtilityTable utilityTable;
+
+	// Draws random bids within a utility band, used to choose a bid above a given utility.
+	private UtilityBandSampler bidSampler;
+
+	// Approximate Pareto frontier between our and the opponent's utility, used in the FRONTIER bidding mode.
+	private ParetoFrontier paretoFrontier;
+
+	// Searches the bid with the best nash product above the target, used in the EXACT bidding mode.
+	private NashBranchAndBound branchAndBound;
+
+	// Draws and scores the candidate bids of a round in parallel.
+	private CandidateGenerator candidateGenerator;
+
+	// Solves the utility space estimation in the background; null without preference uncertainty.
+	private UtilitySpaceEstimator utilitySpaceEstimator;
+
+	/**
+	 * § PERSISTENCE
+	 */
+	// What earlier sessions learned, to start warm; null when persistence is turned off. Opened by
+	// estimateUtilitySpace or init, whichever runs first.
+	private ModelStore modelStore;
 
-	// The sorted outcome space, used to choose a bud close to a given utility.
-	private SortedOutcomeSpace sortedOutcomeSpace;
+	// Fingerprint of the domain and initial ranking, the key of our estimated utility table.
+	private long rankingFingerprint;
 
-	// Used to generate random numbers in the agent implementation.
-	private Random random;
+	// Whether the utility table is estimated from the ranking, rather than the rank-based stand-in.
+	private boolean utilityTableEstimated;
+
+	// Fingerprint of the domain and each opponent's class, the key of its utility table and concession statistics.
+	private ConcurrentHashMap<AgentID, Long> opponentFingerprints = new ConcurrentHashMap<AgentID, Long>();
+
+	/**
+	 * § INSTRUMENTATION
+	 */
+	// Latency and allocation per phase; created here, as estimateUtilitySpace runs before init completes.
+	private AgentMetrics metrics = new AgentMetrics();
+
+	// Records the session for offline replay; null unless -Dgroup1.trace is set.
+	private TraceRecorder traceRecorder;
+
+	// Whether estimated utility spaces wait for installPendingEstimate, where a replay recorded them, rather than being installed once ready.
+	private boolean estimatesHeld;
 
 	/**
 	 * § METHODS
 	 */
 
+	/**
+	 * Creates the agent with the default parameters, or those of the file set by -Dgroup1.parameters.
+	 */
+	public Agent1()
+	{
+		this(StrategyParameters.load());
+	}
+
+	/**
+	 * Creates the agent with the given parameters, as the parameter tuner does.
+	 */
+	public Agent1(StrategyParameters parameters)
+	{
+		this.parameters = parameters;
+	}
+
 	/**
 	 * Initializes a new instance of the agent.
 	 * + Prints the domain.
@@ -79,12 +150,100 @@ public class Agent1 extends AbstractNegotiationParty
 	{
 		super.init(info);
 
-		// TODO: why needed? possible with uncertain domain? ## Yes it is as we override utility space
-		this.sortedOutcomeSpace = new SortedOutcomeSpace(this.utilitySpace);
-		this.random = new Random();
+		this.random = new SplittableRandom(info.getRandomSeed()); // seeded, so that a traced session can be replayed
 		this.counterOffersMade = 0;
 
-		this.bestGeneratedBids = new ArrayList<BidDetails>();
+		// The encoder is the agent's index of the domain; estimateUtilitySpace may have built it already
+		if (this.bidEncoder == null)
+			this.bidEncoder = new BidEncoder(getDomain());
+		this.bestGeneratedBids = new TopKBids(this.parameters.getMaxBestBidsBufferSize(), this.parameters.getAmountOfTopBidsToOffer(), this.bidEncoder.getIssueCount());
+		this.utilityTable = UtilityTable.fromUtilitySpace(this.bidEncoder, this.utilitySpace);
+		this.bidSampler = new UtilityBandSampler(this.utilityTable);
+		this.opponentUtilities = OpponentUtilities.of(this.opponentModels.values(), null);
+		this.candidateGenerator = new CandidateGenerator(ForkJoinPool.commonPool());
+		this.paretoFrontier = new ParetoFrontier(this.parameters.getParetoFrontierCapacity(), this.bidEncoder.getIssueCount());
+		this.branchAndBound = new NashBranchAndBound(this.parameters.getMaxBranchAndBoundNodes());
+
+		long maxBidsToGenerate = Math.min(4 * getDomain().getNumberOfPossibleBids(),
+				(long) this.parameters.getMaxBidsToGeneratePerCore() * Math.max(1, this.candidateGenerator.getParallelism()));
+		this.computeBudget = new ComputeBudget(getTimeLine(), this.parameters.getComputeBudgetFraction(), this.parameters.getMinBidsToGenerate(),
+				(int) maxBidsToGenerate, this.parameters.getMaxRoundsBetweenNashProductUpdates());
+
+		this.metrics.register(String.valueOf(getPartyId()));
+		this.openModelStore();
+		this.traceRecorder = TraceRecorder.open(TraceRecorder.getDefaultDirectory(), getPartyId(), info.getRandomSeed(),
+				getTimeLine(), this.bidEncoder, userModel == null ? null : userModel.getBidRanking(), this.parameters, this.modelStore);
+	}
+
+	/**
+	 * Open the model store, unless persistence is turned off or it is open already.
+	 */
+	private void openModelStore()
+	{
+		File file = ModelStore.getDefaultFile();
+
+		if (this.modelStore == null && file != null)
+			this.modelStore = ModelStore.open(file);
+	}
+
+	/**
+	 * Install the utility space estimated by the linear program once it is solved,
+	 * rebuilding everything derived from our utility space.
+	 * If the ranking of the user model grew since, an incremental re-estimation is started.
+	 */
+	private void installEstimatedUtilitySpace()
+	{
+		if (this.utilitySpaceEstimator == null || this.estimatesHeld)
+			return;
+
+		AbstractUtilitySpace estimatedUtilitySpace = this.utilitySpaceEstimator.poll();
+		this.utilitySpaceEstimator.update(userModel.getBidRanking());
+
+		if (estimatedUtilitySpace != null)
+			this.installUtilitySpace(estimatedUtilitySpace);
+	}
+
+	/**
+	 * Hold every estimated utility space back until installPendingEstimate is called, so that a replay
+	 * installs it where the trace recorded it rather than whenever the background estimation happens to finish.
+	 * Call before init.
+	 */
+	public void holdEstimates()
+	{
+		this.estimatesHeld = true;
+	}
+
+	/**
+	 * Wait for the pending estimation and install its result, as at an ESTIMATE_INSTALLED record of a trace.
+	 */
+	public void installPendingEstimate()
+	{
+		if (this.utilitySpaceEstimator == null)
+			return;
+
+		AbstractUtilitySpace estimatedUtilitySpace = this.utilitySpaceEstimator.await();
+		this.utilitySpaceEstimator.update(userModel.getBidRanking());
+
+		if (estimatedUtilitySpace != null)
+			this.installUtilitySpace(estimatedUtilitySpace);
+	}
+
+	/**
+	 * Replace our utility space by an estimated one, rebuilding everything derived from it.
+	 */
+	private void installUtilitySpace(AbstractUtilitySpace estimatedUtilitySpace)
+	{
+		this.utilitySpace = estimatedUtilitySpace;
+		this.utilityTable = UtilityTable.fromUtilitySpace(this.bidEncoder, this.utilitySpace);
+		this.bidSampler = new UtilityBandSampler(this.utilityTable);
+		this.updateNashProduct();
+		this.utilityTableEstimated = true;
+
+		if (this.traceRecorder != null)
+			this.traceRecorder.recordEstimateInstalled();
+
+		if (this.lastReceivedEncodedBid != null)
+			this.lastReceivedBidUtility = this.utilityTable.getUtility(this.lastReceivedEncodedBid);
 	}
 
 	/**
@@ -92,7 +251,7 @@ public class Agent1 extends AbstractNegotiationParty
 	 */
 	private boolean isWithinMaxUtilityBidRange()
 	{
-		return getTimeLine().getTime() < this.HARDHEADED_PERCENTAGE;
+		return getTimeLine().getTime() < this.parameters.getHardheadedPercentage();
 	}
 
 	/**
@@ -104,188 +263,242 @@ public class Agent1 extends AbstractNegotiationParty
 	@Override
 	public Action chooseAction(List<Class<? extends Action>> possibleActions)  // depends on lastReceivedBid which might be null
 	{
-		this.counterOffersMade++;
-
-		// Hardheadedness: for first X% of the time, offer maximum utility bid.
-		if (isWithinMaxUtilityBidRange()) {
-			Bid maxUtilityBid = userModel.getBidRanking().getMaximalBid(); // TODO: replace by elicitation
-			try {
-				maxUtilityBid = this.utilitySpace.getMaxUtilityBid();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-//			System.out.println(maxUtilityBid);
-			return new Offer(getPartyId(), maxUtilityBid);
+		long startTime = this.metrics.startTime();
+		long startAllocation = this.metrics.startAllocation();
+		double time = getTimeLine().getTime();
+		Action action;
+		Bid bid;
+		double targetUtility; // the one the action was chosen with, for the trace
 
+		try {
+			this.installEstimatedUtilitySpace();
+			this.counterOffersMade++;
+
+			// Hardheadedness: for first X% of the time, offer maximum utility bid.
+			if (isWithinMaxUtilityBidRange()) {
+				int[] maxUtilityBid = new int[this.bidEncoder.getIssueCount()];
+				this.bidSampler.sample(this.bidSampler.getMaxUtility(), this.bidSampler.getMaxUtility(), this.random, maxUtilityBid);
+				bid = this.bidEncoder.decode(maxUtilityBid);
+				action = new Offer(getPartyId(), bid);
+				targetUtility = this.bidSampler.getMaxUtility();
+			}
+			else {
+				// Otherwise, create bid above target utility
+				// If the last received bid meets the criteria of or newly generated bid, ACCEPT the offered bid
+				// If not, OFFER our newly generated bid
+				bid = generateBidAboveTarget();
+				targetUtility = this.lastTargetUtility;
+
+				if (isLastReceivedBidPreferred()) {
+					bid = lastReceivedBid;
+					action = new Accept(getPartyId(), bid);
+				} else {
+					this.lastReceivedBidOnTable = false; // our offer replaces it
+					action = new Offer(getPartyId(),bid);
+				}
+			}
+		} finally {
+			this.metrics.record(AgentMetrics.Phase.CHOOSE_ACTION, startTime, startAllocation);
 		}
 
-		// Otherwise, create bid above target utility
-		// If the last received bid meets the criteria of or newly generated bid, ACCEPT the offered bid
-		// If not, OFFER our newly generated bid
-		Bid bid = generateBidAboveTarget();
+		if (this.traceRecorder != null)
+			this.traceRecorder.recordChoice(time, action, bid, targetUtility, this.getOpponentUtilities());
 
-		if (isLastReceivedBidPreferred(bid)) {
-			return new Accept(getPartyId(), lastReceivedBid);
-		} else {
-			return new Offer(getPartyId(),bid);
-		}
+		return action;
 	}
 
 	/**
 	 * A bid will be accepted when:
 	 * - Utility of the offered bid > utility of our generated bid
 	 * - Utility of the offered bid > our target utility
+	 * - In a multilateral session, every other party agreed to the offered bid and its utility > our target
+	 *   utility minus a margin, as accepting it closes the deal for all parties. Bilaterally every offer is
+	 *   agreed by its sender, so there the margin would only make the agent concede faster.
+	 * Uses the utilities computed when the bids were received and generated, rather than evaluating them again.
 	 */
-	private boolean isLastReceivedBidPreferred(Bid generatedBid)
+	private boolean isLastReceivedBidPreferred()
 	{
-		boolean condition1 = this.getUtility(this.lastReceivedBid) >= getUtility(generatedBid);  // LastRecievedbid might be null
-		boolean condition2 = this.getUtility(this.lastReceivedBid) >= this.getTargetUtility();
+		if (this.lastReceivedBid == null || !this.lastReceivedBidOnTable)
+			return false;
+
+		boolean condition1 = this.lastReceivedBidUtility >= this.lastGeneratedBidUtility;
+		boolean condition2 = this.lastReceivedBidUtility >= this.lastTargetUtility;
+		boolean condition3 = this.opponentModels.size() > 1
+				&& this.lastReceivedBidAgreedBy.size() >= this.opponentModels.size()
+				&& this.lastReceivedBidUtility >= this.lastTargetUtility - this.parameters.getClosingAcceptanceMargin();
 
-		return condition1 || condition2;
+		return condition1 || condition2 || condition3;
 	}
 
 	/**
 	 * Generate a bid, based on our target utility and the estimated opponent utility from the frequency model.
+	 * Package-private for the benchmarks.
 	 */
-	private Bid generateBidAboveTarget()
+	Bid generateBidAboveTarget()
 	{
+		long startTime = this.metrics.startTime();
+		long startAllocation = this.metrics.startAllocation();
 		double targetUtility = this.getTargetUtility();
 
-		Bid randomBid;
-		Bid bestBid = this.generateRandomBidAboveTarget(targetUtility);  // Check if not null
+		int[] encodedBid;
+
+		switch (this.parameters.getBiddingMode()) {
+			case FRONTIER:
+				encodedBid = this.selectFromParetoFrontier(targetUtility);
+				break;
+			case EXACT:
+				encodedBid = this.selectByBranchAndBound(targetUtility);
+				break;
+			default:
+				encodedBid = this.selectBySampling(targetUtility);
+		}
 
-		double nashProduct;
-		double bestNashProduct = Double.MIN_VALUE;
+		this.lastGeneratedBidUtility = this.utilityTable.getUtility(encodedBid);
+		this.lastTargetUtility = targetUtility;
 
-		// Recalculate the nash product every X rounds
-		if (this.counterOffersMade % this.FREQUENCY_RECALCULATE_NASH_PRODUCT == 0)
+		Bid bid = this.bidEncoder.decode(encodedBid);
+		this.metrics.record(AgentMetrics.Phase.GENERATE_BID, startTime, startAllocation);
+		return bid;
+	}
+
+	/**
+	 * Generate random bids above the target utility and choose among the best saved ones.
+	 */
+	private int[] selectBySampling(double targetUtility)
+	{
+		// Recalculate the nash product as often as the compute budget allows
+		if (++this.roundsSinceNashProductUpdate >= this.computeBudget.getRescoreInterval(this.bestGeneratedBids.size()))
 			this.updateNashProduct();
 
+		// Generate random bids on all cores and keep the one with the best nash product.
+		// The amount fits the compute budget of the round, measured against the cost of the previous rounds.
+		int amountOfBids = this.computeBudget.getCandidateCount();
+		long samplerAttempts = this.bidSampler.getAttemptCount();
+		long generationStart = System.nanoTime();
+		CandidateGenerator.Candidate best = this.candidateGenerator.generate(this.bidSampler, this.utilityTable,
+				this.getOpponentUtilities(), targetUtility, amountOfBids, this.random);
+		this.computeBudget.recordCandidates(amountOfBids, System.nanoTime() - generationStart);
+		this.metrics.recordCandidates(amountOfBids, this.bidSampler.getAttemptCount() - samplerAttempts);
 
+		// Keep the bid if its nash product is among the best saved ones
+		this.bestGeneratedBids.offer(best.getBid(), best.getNashProduct());
 
-		// Generate random bids and keep the one with the best nash product.
-		for (int i = 0; i < this.AMOUNT_OF_BIDS_TO_GENERATE; i++) {
-			randomBid = this.generateRandomBidAboveTarget(targetUtility);
-			nashProduct = this.calculateNashProduct(randomBid);
+		// If the buffer is full, offer one of the top bids
+		// Otherwise, offer the newly generated bid with the highest nash product
+		int[] bestEncodedBid = best.getBid();
 
-			if (nashProduct > bestNashProduct) {
-				bestBid = randomBid;
-				bestNashProduct = nashProduct;
-			}
-		}
+		if (this.bestGeneratedBids.isFull())
+			this.bestGeneratedBids.sampleTop(this.random, bestEncodedBid);
 
-		// If bestGeneratedBids not full, add above generated bid to list
-		if (this.bestGeneratedBids.size() < MAX_BEST_BIDS_BUFFER_SIZE) {
-			this.bestGeneratedBids.add(new BidDetails(bestBid, bestNashProduct));
+		return bestEncodedBid;
+	}
 
-			// If adding this new element to the list caused the list to be full,
-			// sort the list by utility value
-			// Note: as a consequence, only performed once
-			if (this.bestGeneratedBids.size() < MAX_BEST_BIDS_BUFFER_SIZE)
-				this.sortBestGeneratedBidsByUtility();
+	/**
+	 * Grow the Pareto frontier by a few random bids and the neighbours of its best bid,
+	 * and offer the bid on it with the best nash product above the target utility.
+	 */
+	private int[] selectFromParetoFrontier(double targetUtility)
+	{
+		// Repairs the frontier when the opponent model (or our estimate) changed
+		this.paretoFrontier.setUtilityTables(this.utilityTable, this.getOpponentUtilities());
 
+		int[] encodedBid = new int[this.bidEncoder.getIssueCount()];
+		double maxUtility = this.bidSampler.getMaxUtility();
+		long samplerAttempts = this.bidSampler.getAttemptCount();
+
+		for (int i = 0; i < this.parameters.getParetoFrontierSamplesPerRound(); i++) {
+			if (this.bidSampler.sample(targetUtility, maxUtility, this.random, encodedBid))
+				this.paretoFrontier.add(encodedBid);
 		}
-		// If bestGeneratedBids full, keep the bid with the lowest utility in the list,
-		// or the newly generated bid with the best nash product
-		else {
-			double utilityWorstBid = this.bestGeneratedBids.get(this.MAX_BEST_BIDS_BUFFER_SIZE - 1).getMyUndiscountedUtil();
-
-			// TODO: comparing nash product with a utility? do we not save the we save the nash products?
-			if (bestNashProduct > utilityWorstBid) {
-				this.bestGeneratedBids.remove(0);
-				this.bestGeneratedBids.add(new BidDetails(bestBid, bestNashProduct));
-				this.sortBestGeneratedBidsByUtility();
-			}
-		}
+		this.metrics.recordCandidates(this.parameters.getParetoFrontierSamplesPerRound(), this.bidSampler.getAttemptCount() - samplerAttempts);
 
-		// If list is full, offer one of the top five bids
-		// Otherwise, offer the newly generated bid with the highest nash product
-		if (this.bestGeneratedBids.size() == this.MAX_BEST_BIDS_BUFFER_SIZE) {
-			// TODO: taking the last one in the list?
-			int index = this.MAX_BEST_BIDS_BUFFER_SIZE - random.nextInt(5) - 1;
-			bestBid = this.bestGeneratedBids.get(index).getBid();
+		// Nothing above the target yet: offer the maximum utility bid
+		if (!this.paretoFrontier.getBestAbove(targetUtility, encodedBid)) {
+			this.bidSampler.sample(maxUtility, maxUtility, this.random, encodedBid);
+			return encodedBid;
 		}
 
-		return bestBid;
+		this.paretoFrontier.addNeighbours(encodedBid);
+		this.paretoFrontier.getBestAbove(targetUtility, encodedBid);
+		return encodedBid;
 	}
 
 	/**
-	 * Sort bestGeneratedBids by utility values.
+	 * Search the bid with the best nash product above the target utility. When the search runs out of
+	 * the round's compute budget, the best bid found so far is offered; it is never below the target.
 	 */
-	private void sortBestGeneratedBidsByUtility()
+	private int[] selectByBranchAndBound(double targetUtility)
 	{
-		Collections.sort(this.bestGeneratedBids, new Comparator<BidDetails>() {
-			@Override
-			public int compare(BidDetails o1, BidDetails o2) {
-				if (o1.getMyUndiscountedUtil() < o2.getMyUndiscountedUtil())
-					return -1;
-				else if (o1.getMyUndiscountedUtil() == o2.getMyUndiscountedUtil())
-					return 0;
-				else
-					return 1;
-			}
-		});
+		int[] encodedBid = new int[this.bidEncoder.getIssueCount()];
+		this.branchAndBound.search(this.utilityTable, this.getOpponentUtilities(), targetUtility,
+				this.computeBudget.getRoundBudgetNanos(), encodedBid);
+		this.metrics.recordCandidates(this.branchAndBound.getNodeCount(), 0);
+		return encodedBid;
 	}
 
 	/**
-	 * Create random bid with utility > reservation value.
+	 * Update Nash products in the bestGeneratedBids list.
 	 */
-	private Bid generateRandomBidAboveTarget(double targetUtility)
+	private void updateNashProduct()
 	{
-
-		Bid bid;
-
-		do {
-			double random = this.random.nextDouble();
-			double utilityRange = targetUtility +  random * (1.0 - targetUtility);  // Enrico said change
-			bid = sortedOutcomeSpace.getBidNearUtility(utilityRange).getBid(); // Change not efficient and may time out
-		} while (this.getUtility(bid) <= targetUtility);
-		// TODO: this.getUtility(bid) allowed? What does utilityRange formula mean?
-		// TODO: elicit reservation value? Is that available?
-		// TODO: ?? Need to ask questions of how we use out preference elicitation to get the utility of each bid ??
-
-		return bid;
+		long startTime = this.metrics.startTime();
+		long startAllocation = this.metrics.startAllocation();
+
+		long rescoreStart = System.nanoTime();
+		this.bestGeneratedBids.rescore(this::calculateNashProduct);
+		this.computeBudget.recordRescore(this.bestGeneratedBids.size(), System.nanoTime() - rescoreStart);
+		this.roundsSinceNashProductUpdate = 0;
+		this.metrics.record(AgentMetrics.Phase.UPDATE_NASH_PRODUCT, startTime, startAllocation);
 	}
 
 	/**
-	 * Update Nash products in the bestGeneratedBids list.
+	 * Calculate the Nash product of an encoded bid, using the utility tables of all parties.
 	 */
-	private void updateNashProduct()
+	private double calculateNashProduct(int[] encodedBid)
 	{
-		for (BidDetails bidDetails: this.bestGeneratedBids){
-			bidDetails.setMyUndiscountedUtil(this.calculateNashProduct(bidDetails.getBid()));
-		}
+		return this.utilityTable.getUtility(encodedBid) * this.getOpponentUtilities().getUtility(encodedBid);
 	}
 
 	/**
-	 * Calculate the Nash product by using our utility of the bid * opponent utility.
+	 * The utility tables of all opponent models, as one snapshot that only changes when one of them does.
 	 */
-	private double calculateNashProduct(Bid bid)
+	private OpponentUtilities getOpponentUtilities()
 	{
-		return this.getUtility(bid) * opponentModel.getOpponentUtility(bid);
+		this.opponentUtilities = OpponentUtilities.of(this.opponentModels.values(), this.opponentUtilities);
+		return this.opponentUtilities;
 	}
 
 	private double getTargetUtility() { // getMinAcceptableUtility
 		double timeRemaining = 1 - this.getTimeLine().getTime();
 
-		return Math.log10(timeRemaining) / this.getConcedingFactor() + KA_MINIMUM_STARTING_TARGET_UTILITY;
+		return Math.log10(timeRemaining) / this.getConcedingFactor() + this.parameters.getMinimumStartingTargetUtility();
 	}
 
 	/**
 	 * Calculate the conceding factor.
-	 * If an opponent is hard headed, determined by the last 10 rounds, concede slightly faster.
+	 * If an opponent is hard headed, determined by the last rounds (10 by default), concede slightly faster;
+	 * with several opponents, the most hard headed one counts, as every party has to agree.
+	 * Before an opponent made that many bids, it is not considered hard headed.
 	 * TODO: Giving in to opponent?
 	 */
 	private double getConcedingFactor()
 	{
-		double hardheadedness = opponentModel.hardheaded(10);
+		if (this.timeline.getTime() < this.parameters.getConcedingFactorSwitchTime())
+			return this.parameters.getEarlyConcedingFactor();
 
-		if (this.timeline.getTime() < 0.9)
-			return 13;
-		else if (hardheadedness <= 0.6)
-			return 10;
+		double hardheadedness = 0.0;
+		int turns = this.parameters.getHardheadednessTurns();
+
+		for (OpponentModel opponentModel : this.opponentModels.values()) {
+			Double opponentHardheadedness = opponentModel.hardheaded(turns); // null until that many bids were received
+			if (opponentHardheadedness != null)
+				hardheadedness = Math.max(hardheadedness, opponentHardheadedness);
+		}
+
+		if (hardheadedness <= this.parameters.getHardheadednessThreshold())
+			return this.parameters.getConcedingFactor();
 		else
-			return 7;
+			return this.parameters.getHardheadedConcedingFactor();
 	}
 
 	/**
@@ -294,27 +507,93 @@ public class Agent1 extends AbstractNegotiationParty
 	@Override
 	public void receiveMessage(AgentID sender, Action action)
 	{
+		long startTime = this.metrics.startTime();
+		long startAllocation = this.metrics.startAllocation();
+
 		super.receiveMessage(sender, action);
+		this.installEstimatedUtilitySpace();
+
+		// Every party gets its own model; it starts from what earlier sessions learned about this kind of opponent
+		OpponentModel opponentModel = sender == null ? null : this.opponentModels.computeIfAbsent(sender, this::createOpponentModel);
 
 		// If opponent makes an offer
-		if (action instanceof Offer)
+		if (action instanceof Offer && opponentModel != null)
 		{
 			// Replace the last received bid
 			this.lastReceivedBid = ((Offer) action).getBid();
-			this.lastReceivedBidUtility = getUtility(lastReceivedBid);
-
-			// If it is the first offer from the opponent, initialise model
-			if (this.opponentModel == null)
-				opponentModel = new OpponentModel(this.generateRandomBid()); // TODO: why generateRandomBid?
-			// TODO: Maybe to start off, otherwise we should look at changing
-			// TODO: to an actual bid received.
+			this.lastReceivedEncodedBid = this.bidEncoder.encode(this.lastReceivedBid);
+			this.lastReceivedBidUtility = this.utilityTable.getUtility(this.lastReceivedEncodedBid);
+			this.lastReceivedBidOnTable = true;
+			this.lastReceivedBidAgreedBy.clear();
+			this.lastReceivedBidAgreedBy.add(sender);
 
 			// Store the bid and utility in the opponent history
-			opponentModel.addBid(this.lastReceivedBid);
-			opponentModel.addUtilityHistory(this.lastReceivedBidUtility);
+			opponentModel.addBid(this.lastReceivedEncodedBid, this.lastReceivedBidUtility);
 			// TODO: in original code, why not done if it is a new opponent?
 			// TODO:  ?? Not too sure I fully understand, need to ask ??
 		}
+		else if (action instanceof Accept && opponentModel != null && this.lastReceivedBidOnTable)
+		{
+			this.lastReceivedBidAgreedBy.add(sender);
+		}
+
+		if (this.traceRecorder != null)
+			this.traceRecorder.recordReceive(getTimeLine().getTime(), sender, action);
+
+		this.metrics.record(AgentMetrics.Phase.RECEIVE_MESSAGE, startTime, startAllocation);
+	}
+
+	/**
+	 * Create the model of a new opponent. The opponent is keyed by its class (the name of its id without
+	 * the session suffix) and the domain, and the model starts from the utility table learned against
+	 * that class before, if any.
+	 */
+	private OpponentModel createOpponentModel(AgentID sender)
+	{
+		OpponentModel opponentModel = new OpponentModel(this.bidEncoder, this.metrics);
+		long opponentFingerprint = ModelStore.fingerprint(this.bidEncoder, sender.getName().replaceAll("@\\d+$", ""));
+		this.opponentFingerprints.put(sender, opponentFingerprint);
+
+		UtilityTable prior = new UtilityTable(this.bidEncoder);
+
+		if (this.modelStore != null && this.modelStore.readUtilityTable(ModelStore.OPPONENT_UTILITY_TABLE, opponentFingerprint, prior))
+			opponentModel.setPrior(prior);
+
+		return opponentModel;
+	}
+
+	/**
+	 * Store our estimated utility table, the opponent's utility table and the concession statistics
+	 * (sessions, agreements, total agreement time, total agreed utility) for later sessions.
+	 */
+	private void saveModels(Bid acceptedBid)
+	{
+		if (this.modelStore == null)
+			return;
+
+		if (this.utilityTableEstimated)
+			this.modelStore.putUtilityTable(ModelStore.UTILITY_TABLE, this.rankingFingerprint, this.utilityTable);
+
+		for (Map.Entry<AgentID, Long> entry : this.opponentFingerprints.entrySet()) {
+			long opponentFingerprint = entry.getValue();
+			OpponentModel opponentModel = this.opponentModels.get(entry.getKey());
+
+			if (opponentModel.getBidCount() > 0)
+				this.modelStore.putUtilityTable(ModelStore.OPPONENT_UTILITY_TABLE, opponentFingerprint, opponentModel.getUtilityTable());
+
+			// Added to the counts in the file when saved, so sessions ending at the same time all count
+			double[] concessionStatistics = new double[4];
+			concessionStatistics[0] = 1;
+
+			if (acceptedBid != null) {
+				concessionStatistics[1] = 1;
+				concessionStatistics[2] = getTimeLine().getTime();
+				concessionStatistics[3] = getUtility(acceptedBid);
+			}
+			this.modelStore.add(ModelStore.CONCESSION_STATISTICS, opponentFingerprint, concessionStatistics);
+		}
+
+		this.modelStore.save();
 	}
 
 	/**
@@ -327,25 +606,64 @@ public class Agent1 extends AbstractNegotiationParty
 	}
 
 	/**
-	 * This stub can be expanded to deal with preference uncertainty in a more sophisticated way than the default behavior.
+	 * Stops the background estimation at the end of the session, stores the learned models
+	 * and prints the instrumentation summary.
+	 */
+	@Override
+	public Map<String, String> negotiationEnded(Bid acceptedBid)
+	{
+		if (this.utilitySpaceEstimator != null)
+			this.utilitySpaceEstimator.shutdown();
+
+		this.saveModels(acceptedBid);
+
+		if (this.traceRecorder != null)
+			this.traceRecorder.close();
+
+		if (AgentMetrics.isEnabled()) {
+			System.err.println(getPartyId() + " metrics:");
+			System.err.print(this.metrics.getSummary());
+		}
+		this.metrics.unregister();
+
+		return super.negotiationEnded(acceptedBid);
+	}
+
+	/**
+	 * Returns the rank-based estimate straight away and solves the linear program in the background,
+	 * so the first rounds never wait for the solver. The result is installed by installEstimatedUtilitySpace.
+	 * When an earlier session estimated the utility space from the same ranking, that estimate is used instead,
+	 * and the estimator only runs once the ranking grows.
 	 */
 	@Override
 	public AbstractUtilitySpace estimateUtilitySpace()
 	{
-		//return new AdditiveUtilitySpaceFactory(getDomain()).getUtilitySpace();
+		long startTime = this.metrics.startTime();
+		long startAllocation = this.metrics.startAllocation();
 
 		Domain domain = getDomain();
 		BidRanking bidRanking = userModel.getBidRanking(); // changed to userModel.getBidRanking
-		LinearProgrammingEstimation linearProgrammingEstimation = new LinearProgrammingEstimation(domain, bidRanking);
-		AdditiveUtilitySpaceFactory additiveUtilitySpaceFactory;
 
-		try {
-			additiveUtilitySpaceFactory = linearProgrammingEstimation.Estimation();
-		} catch (Exception e){
-			e.printStackTrace();
-			additiveUtilitySpaceFactory = new AdditiveUtilitySpaceFactory(domain);
-			additiveUtilitySpaceFactory.estimateUsingBidRanks(bidRanking);
+		this.bidEncoder = new BidEncoder(domain);
+		UtilityTable storedUtilityTable = new UtilityTable(this.bidEncoder);
+		this.rankingFingerprint = ModelStore.fingerprint(this.bidEncoder, bidRanking);
+		this.openModelStore();
+
+		this.utilitySpaceEstimator = new UtilitySpaceEstimator(this.parameters.getEstimationTimeBudgetMs(), this.parameters.getStreamingEstimationRankingSize());
+
+		if (this.modelStore != null && this.modelStore.readUtilityTable(ModelStore.UTILITY_TABLE, this.rankingFingerprint, storedUtilityTable)) {
+			AdditiveUtilitySpaceFactory additiveUtilitySpaceFactory = new AdditiveUtilitySpaceFactory(domain);
+			storedUtilityTable.writeTo(additiveUtilitySpaceFactory);
+			this.utilityTableEstimated = true;
+			this.utilitySpaceEstimator.skipEstimate(domain, bidRanking); // re-estimates when comparisons are elicited
+
+			this.metrics.record(AgentMetrics.Phase.ESTIMATE_UTILITY_SPACE, startTime, startAllocation);
+			return additiveUtilitySpaceFactory.getUtilitySpace();
 		}
-		return additiveUtilitySpaceFactory.getUtilitySpace();
+
+		AbstractUtilitySpace estimatedUtilitySpace = this.utilitySpaceEstimator.estimate(domain, bidRanking);
+
+		this.metrics.record(AgentMetrics.Phase.ESTIMATE_UTILITY_SPACE, startTime, startAllocation);
+		return estimatedUtilitySpace;
 	}
 }
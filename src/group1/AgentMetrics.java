@@ -0,0 +1,183 @@
+package group1;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and allocation of the phases of the agent, to see which rounds blow the time budget.
+ * Every phase has a lock-free latency histogram and a count of the bytes the calling thread allocated
+ * during it (from the ThreadMXBean, where the JVM supports it; work handed to other threads, such as
+ * the fork-join candidate generation, is not included). Set -Dgroup1.metrics=false to turn recording off.
+ */
+public class AgentMetrics implements AgentMetricsMBean {
+
+    public enum Phase { CHOOSE_ACTION, RECEIVE_MESSAGE, GENERATE_BID, UPDATE_NASH_PRODUCT, SET_WEIGHT_VALUES, ESTIMATE_UTILITY_SPACE }
+
+    private static final boolean ENABLED = !"false".equals(System.getProperty("group1.metrics"));
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = allocationBean();
+
+    private LatencyHistogram[] latencies; // per phase
+    private LongAdder[] allocatedBytes; // per phase
+    private LongAdder candidateCount;
+    private LongAdder samplerAttemptCount;
+    private ObjectName objectName; // set while registered
+
+    public AgentMetrics() {
+
+        this.latencies = new LatencyHistogram[Phase.values().length];
+        this.allocatedBytes = new LongAdder[Phase.values().length];
+
+        for (int p = 0; p < this.latencies.length; p++) {
+            this.latencies[p] = new LatencyHistogram();
+            this.allocatedBytes[p] = new LongAdder();
+        }
+        this.candidateCount = new LongAdder();
+        this.samplerAttemptCount = new LongAdder();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        if (!ENABLED || !(threadMXBean instanceof com.sun.management.ThreadMXBean))
+            return null;
+
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        return allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled() ? allocationBean : null;
+    }
+
+    /**
+     * @return whether recording is on, i.e. -Dgroup1.metrics is not false
+     */
+    public static boolean isEnabled() { return ENABLED; }
+
+    /**
+     * @return the start time of a phase, to pass to record
+     */
+    public long startTime() { return ENABLED ? System.nanoTime() : 0L; }
+
+    /**
+     * @return the bytes allocated by the current thread so far, to pass to record
+     */
+    public long startAllocation() {
+        return ALLOCATION_BEAN == null ? 0L : ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Record a phase that ran on the current thread.
+     *
+     * @param phase The phase
+     * @param startTime The value of startTime when the phase started
+     * @param startAllocation The value of startAllocation when the phase started
+     */
+    public void record(Phase phase, long startTime, long startAllocation) {
+
+        if (!ENABLED)
+            return;
+
+        this.latencies[phase.ordinal()].record(System.nanoTime() - startTime);
+
+        if (ALLOCATION_BEAN != null)
+            this.allocatedBytes[phase.ordinal()].add(startAllocation() - startAllocation);
+    }
+
+    /**
+     * Count the candidates of a bid generation and the sampler attempts they took.
+     */
+    public void recordCandidates(long candidates, long samplerAttempts) {
+
+        this.candidateCount.add(candidates);
+        this.samplerAttemptCount.add(samplerAttempts);
+    }
+
+    /**
+     * Register with the platform MBean server; a failure is reported but otherwise ignored.
+     *
+     * @param name The name distinguishing this agent, e.g. its party id
+     */
+    public void register(String name) {
+
+        if (!ENABLED || this.objectName != null)
+            return;
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("group1:type=AgentMetrics,name=" + ObjectName.quote(name));
+
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(this, objectName);
+                this.objectName = objectName;
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Remove the registration, at the end of the session.
+     */
+    public void unregister() {
+
+        if (this.objectName == null)
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        this.objectName = null;
+    }
+
+    @Override
+    public String[] getPhases() {
+
+        String[] phases = new String[Phase.values().length];
+
+        for (Phase phase : Phase.values()) { phases[phase.ordinal()] = phase.name(); }
+        return phases;
+    }
+
+    @Override
+    public long getCount(String phase) { return this.latencies[Phase.valueOf(phase).ordinal()].getCount(); }
+
+    @Override
+    public double getLatencyMicros(String phase, double percentile) {
+        return this.latencies[Phase.valueOf(phase).ordinal()].getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    @Override
+    public long getAllocatedBytes(String phase) { return this.allocatedBytes[Phase.valueOf(phase).ordinal()].sum(); }
+
+    @Override
+    public long getCandidateCount() { return this.candidateCount.sum(); }
+
+    @Override
+    public long getSamplerAttemptCount() { return this.samplerAttemptCount.sum(); }
+
+    @Override
+    public String getSummary() {
+
+        StringBuilder summary = new StringBuilder(String.format("%-22s %8s %10s %10s %10s %10s %12s%n",
+                "phase", "count", "p50 us", "p90 us", "p99 us", "max us", "bytes/call"));
+
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = this.latencies[phase.ordinal()];
+            long count = histogram.getCount();
+
+            if (count == 0)
+                continue;
+
+            summary.append(String.format("%-22s %8d %10.1f %10.1f %10.1f %10.1f %12d%n", phase.name(), count,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0, histogram.getMax() / 1000.0,
+                    this.allocatedBytes[phase.ordinal()].sum() / count));
+        }
+        summary.append(String.format("candidates %d, sampler attempts %d%n", getCandidateCount(), getSamplerAttemptCount()));
+        return summary.toString();
+    }
+}
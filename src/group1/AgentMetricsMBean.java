@@ -0,0 +1,43 @@
+package group1;
+
+/**
+ * Management interface of AgentMetrics, registered as group1:type=AgentMetrics,name=[party id].
+ */
+public interface AgentMetricsMBean {
+
+    /**
+     * @return the names of the instrumented phases
+     */
+    String[] getPhases();
+
+    /**
+     * @return the number of times a phase ran
+     */
+    long getCount(String phase);
+
+    /**
+     * @return a latency percentile (0 - 100) of a phase, in microseconds
+     */
+    double getLatencyMicros(String phase, double percentile);
+
+    /**
+     * @return the bytes allocated by the agent's thread during a phase, in total
+     */
+    long getAllocatedBytes(String phase);
+
+    /**
+     * @return the number of candidate bids drawn by bid generation
+     */
+    long getCandidateCount();
+
+    /**
+     * @return the number of attempts the sampler needed for those candidates; above the candidate count
+     * when bids had to be redrawn
+     */
+    long getSamplerAttemptCount();
+
+    /**
+     * @return a table of every phase's count, latency percentiles and allocation
+     */
+    String getSummary();
+}
@@ -0,0 +1,35 @@
+package group1;
+
+/**
+ * Scores a pool of candidate bids at once: our utility, the opponents' utility and the Nash product of every candidate.
+ */
+public interface BatchEvaluator {
+
+    /**
+     * Score the candidates of a pool.
+     *
+     * @param pool The candidates
+     * @param utilityTable Our utility table
+     * @param opponentUtilities The (snapshot) utility tables of the opponent models
+     * @param utilities The array receiving our utility of every candidate
+     * @param opponentUtilityProducts The array receiving the product of the opponents' utilities of every candidate
+     * @param nashProducts The array receiving the Nash product of every candidate
+     */
+    void evaluate(CandidatePool pool, UtilityTable utilityTable, OpponentUtilities opponentUtilities,
+                  double[] utilities, double[] opponentUtilityProducts, double[] nashProducts);
+
+    /**
+     * The Vector API evaluator when it was compiled (it needs Java 16+, from ../src-vector) and
+     * jdk.incubator.vector is available at run time; the scalar evaluator otherwise.
+     *
+     * @return the fastest evaluator available
+     */
+    static BatchEvaluator create() {
+
+        try {
+            return (BatchEvaluator) Class.forName("group1.VectorBatchEvaluator").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarBatchEvaluator();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package group1;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+import genius.core.issue.ValueDiscrete;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compact bid representation: an int[] holding, for every issue of the domain,
+ * the index of the chosen value. Built once per domain so that the bidding hot path
+ * can work on plain arrays instead of Bid objects.
+ */
+public class BidEncoder {
+
+    private Domain domain;
+    private IssueDiscrete[] issues; // the discrete issues of the domain, in domain order
+    private int[] offsets; // position of the first value of each issue in a flat value table
+    private int totalValues; // the number of values over all issues
+    private List<HashMap<Value, Integer>> valueIndices; // per issue, the index of every value
+
+    public BidEncoder(Domain domain) {
+
+        List<Issue> issueList = domain.getIssues();
+
+        this.domain = domain;
+        this.issues = new IssueDiscrete[issueList.size()];
+        this.offsets = new int[issueList.size()];
+        this.valueIndices = new ArrayList<HashMap<Value, Integer>>(issueList.size());
+
+        for (int i = 0; i < this.issues.length; i++) {
+            this.issues[i] = (IssueDiscrete) issueList.get(i);
+            this.offsets[i] = this.totalValues;
+            this.totalValues += this.issues[i].getNumberOfValues();
+
+            // IssueDiscrete.getValueIndex scans the values, so look them up in a map instead
+            HashMap<Value, Integer> indices = new HashMap<Value, Integer>();
+            for (int j = 0; j < this.issues[i].getNumberOfValues(); j++) { indices.put(this.issues[i].getValue(j), j); }
+            this.valueIndices.add(indices);
+        }
+    }
+
+    /**
+     * @return the domain the bids are encoded for
+     */
+    public Domain getDomain() { return this.domain; }
+
+    /**
+     * @return the number of issues, i.e. the length of an encoded bid
+     */
+    public int getIssueCount() { return this.issues.length; }
+
+    /**
+     * @return the issue at the given position of an encoded bid
+     */
+    public IssueDiscrete getIssue(int issue) { return this.issues[issue]; }
+
+    /**
+     * @return the number of values of the given issue
+     */
+    public int getValueCount(int issue) { return this.issues[issue].getNumberOfValues(); }
+
+    /**
+     * @return the position of the first value of the given issue in a flat value table
+     */
+    public int getOffset(int issue) { return this.offsets[issue]; }
+
+    /**
+     * @return the number of values over all issues, i.e. the size of a flat value table
+     */
+    public int getTotalValues() { return this.totalValues; }
+
+    /**
+     * Encode a bid into a newly allocated array.
+     *
+     * @param bid The bid to encode
+     * @return the value index chosen for every issue
+     */
+    public int[] encode(Bid bid) {
+
+        int[] encoded = new int[this.issues.length];
+        encode(bid, encoded);
+        return encoded;
+    }
+
+    /**
+     * Encode a bid into the given array.
+     *
+     * @param bid The bid to encode
+     * @param encoded The array receiving the value index of every issue
+     */
+    public void encode(Bid bid, int[] encoded) {
+
+        for (int i = 0; i < this.issues.length; i++) {
+            Value value = bid.getValue(this.issues[i].getNumber());
+            Integer index = this.valueIndices.get(i).get(value);
+            encoded[i] = index == null ? this.issues[i].getValueIndex((ValueDiscrete) value) : index;
+        }
+    }
+
+    /**
+     * Turn an encoded bid back into a Bid of the domain.
+     *
+     * @param encoded The value index chosen for every issue
+     * @return the corresponding bid
+     */
+    public Bid decode(int[] encoded) {
+
+        HashMap<Integer, Value> values = new HashMap<Integer, Value>();
+
+        for (int i = 0; i < this.issues.length; i++) {
+            values.put(this.issues[i].getNumber(), this.issues[i].getValue(encoded[i]));
+        }
+        return new Bid(this.domain, values);
+    }
+}
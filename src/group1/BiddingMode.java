@@ -0,0 +1,22 @@
+package group1;
+
+/**
+ * How the agent chooses the bid it offers above its target utility.
+ */
+public enum BiddingMode {
+
+    /**
+     * Draw random candidates above the target and keep the best Nash products in a buffer.
+     */
+    SAMPLING,
+
+    /**
+     * Offer the bid with the best Nash product on an incrementally maintained Pareto frontier.
+     */
+    FRONTIER,
+
+    /**
+     * Offer the bid with the best Nash product above the target, found by branch and bound within the round's budget.
+     */
+    EXACT
+}
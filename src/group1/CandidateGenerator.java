@@ -0,0 +1,154 @@
+package group1;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Draws candidate bids above a target utility and keeps the one with the best Nash product,
+ * spreading the work over a fork-join pool. Every task draws from its own SplittableRandom,
+ * split off deterministically from the stream passed in, so the same stream gives the same bid however
+ * the tasks are scheduled (Agent1 seeds its stream with the session's random seed).
+ * The utility tables and the sampler are only read, so they can be shared by all tasks.
+ * Each task draws its candidates into a pool and scores them in one batch.
+ */
+public class CandidateGenerator {
+
+    private static final int SEQUENTIAL_THRESHOLD = 256; // candidates drawn by a single task without splitting
+
+    private ForkJoinPool pool;
+    private BatchEvaluator batchEvaluator;
+
+    public CandidateGenerator(ForkJoinPool pool) {
+
+        this(pool, BatchEvaluator.create());
+    }
+
+    public CandidateGenerator(ForkJoinPool pool, BatchEvaluator batchEvaluator) {
+
+        this.pool = pool;
+        this.batchEvaluator = batchEvaluator;
+    }
+
+    /**
+     * @return the number of workers of the pool, to scale the number of candidates with
+     */
+    public int getParallelism() { return this.pool.getParallelism(); }
+
+    /**
+     * Draw candidates from the band [target utility, maximal utility] and return the best.
+     *
+     * @param sampler The sampler of our utility space
+     * @param utilityTable Our utility table
+     * @param opponentUtilities The (snapshot) utility tables of the opponent models
+     * @param targetUtility The lowest utility a candidate may have
+     * @param count The number of candidates to draw
+     * @param random The stream the tasks' streams are split from
+     * @return the candidate with the highest Nash product; ties go to the candidate drawn first
+     */
+    public Candidate generate(UtilityBandSampler sampler, UtilityTable utilityTable, OpponentUtilities opponentUtilities,
+                              double targetUtility, int count, SplittableRandom random) {
+
+        GenerationTask task = new GenerationTask(this.batchEvaluator, sampler, utilityTable, opponentUtilities, targetUtility,
+                Math.max(1, count), random.split());
+        return this.pool.invoke(task);
+    }
+
+    /**
+     * An encoded bid with its Nash product.
+     */
+    public static class Candidate {
+
+        private int[] bid;
+        private double nashProduct;
+
+        public Candidate(int[] bid, double nashProduct) {
+
+            this.bid = bid;
+            this.nashProduct = nashProduct;
+        }
+
+        public int[] getBid() { return this.bid; }
+
+        public double getNashProduct() { return this.nashProduct; }
+    }
+
+    /**
+     * Draws a range of candidates, halving the range until it is small enough to draw sequentially,
+     * and reduces the halves to the better candidate.
+     */
+    private static class GenerationTask extends RecursiveTask<Candidate> {
+
+        private static final long serialVersionUID = 1L; // never serialised; ForkJoinTask is Serializable
+
+        private BatchEvaluator batchEvaluator;
+        private UtilityBandSampler sampler;
+        private UtilityTable utilityTable;
+        private OpponentUtilities opponentUtilities;
+        private double targetUtility;
+        private int count;
+        private SplittableRandom random;
+
+        GenerationTask(BatchEvaluator batchEvaluator, UtilityBandSampler sampler, UtilityTable utilityTable,
+                       OpponentUtilities opponentUtilities, double targetUtility, int count, SplittableRandom random) {
+
+            this.batchEvaluator = batchEvaluator;
+            this.sampler = sampler;
+            this.utilityTable = utilityTable;
+            this.opponentUtilities = opponentUtilities;
+            this.targetUtility = targetUtility;
+            this.count = count;
+            this.random = random;
+        }
+
+        @Override
+        protected Candidate compute() {
+
+            if (this.count <= SEQUENTIAL_THRESHOLD)
+                return drawSequentially();
+
+            int half = this.count / 2;
+            GenerationTask first = new GenerationTask(this.batchEvaluator, this.sampler, this.utilityTable, this.opponentUtilities,
+                    this.targetUtility, half, this.random.split());
+            GenerationTask second = new GenerationTask(this.batchEvaluator, this.sampler, this.utilityTable, this.opponentUtilities,
+                    this.targetUtility, this.count - half, this.random);
+
+            first.fork();
+            Candidate secondBest = second.compute();
+            Candidate firstBest = first.join();
+
+            return secondBest.getNashProduct() > firstBest.getNashProduct() ? secondBest : firstBest;
+        }
+
+        /**
+         * Draw the candidates into a pool and score them as a batch.
+         */
+        private Candidate drawSequentially() {
+
+            int issueCount = this.utilityTable.getEncoder().getIssueCount();
+            int[] candidate = new int[issueCount];
+            CandidatePool candidatePool = new CandidatePool(issueCount, this.count);
+            double maxUtility = this.sampler.getMaxUtility();
+
+            for (int i = 0; i < this.count; i++) {
+                this.sampler.sample(this.targetUtility, maxUtility, this.random, candidate);
+                candidatePool.add(candidate);
+            }
+
+            double[] utilities = new double[this.count];
+            double[] opponentUtilityProducts = new double[this.count];
+            double[] nashProducts = new double[this.count];
+            this.batchEvaluator.evaluate(candidatePool, this.utilityTable, this.opponentUtilities,
+                    utilities, opponentUtilityProducts, nashProducts);
+
+            int best = 0;
+            for (int c = 1; c < this.count; c++) {
+                if (nashProducts[c] > nashProducts[best])
+                    best = c;
+            }
+
+            candidatePool.get(best, candidate);
+            return new Candidate(candidate, nashProducts[best]);
+        }
+    }
+}
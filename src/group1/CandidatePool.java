@@ -0,0 +1,73 @@
+package group1;
+
+/**
+ * A batch of encoded candidate bids in structure-of-arrays layout: one int[] column per issue,
+ * holding the value index of every candidate. Scoring a batch then walks each column once,
+ * reading one table per issue, instead of walking every bid separately.
+ */
+public class CandidatePool {
+
+    private int issueCount;
+    private int capacity;
+    private int size;
+    private int[][] columns; // columns[issue][candidate] is the value index of the candidate for the issue
+
+    public CandidatePool(int issueCount, int capacity) {
+
+        this.issueCount = issueCount;
+        this.capacity = capacity;
+        this.columns = new int[issueCount][capacity];
+    }
+
+    /**
+     * @return the number of candidates held
+     */
+    public int size() { return this.size; }
+
+    /**
+     * @return the number of candidates the pool can hold
+     */
+    public int getCapacity() { return this.capacity; }
+
+    /**
+     * @return the number of issues of a candidate
+     */
+    public int getIssueCount() { return this.issueCount; }
+
+    /**
+     * @return the value indices of all candidates for an issue; only the first size() are in use
+     */
+    public int[] getColumn(int issue) { return this.columns[issue]; }
+
+    /**
+     * Add a candidate, if the pool is not full.
+     *
+     * @param bid The encoded bid, which is copied
+     * @return whether the candidate was added
+     */
+    public boolean add(int[] bid) {
+
+        if (this.size == this.capacity)
+            return false;
+
+        for (int i = 0; i < this.issueCount; i++) { this.columns[i][this.size] = bid[i]; }
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Copy a candidate out of the pool.
+     *
+     * @param candidate The position of the candidate
+     * @param bid The array receiving the encoded bid
+     */
+    public void get(int candidate, int[] bid) {
+
+        for (int i = 0; i < this.issueCount; i++) { bid[i] = this.columns[i][candidate]; }
+    }
+
+    /**
+     * Remove all candidates.
+     */
+    public void clear() { this.size = 0; }
+}
@@ -0,0 +1,107 @@
+package group1;
+
+import genius.core.timeline.TimeLineInfo;
+
+/**
+ * Decides how much work a round of bidding may do, from the time left and the measured cost of that work.
+ *
+ * A round may use a fixed fraction of the remaining time (under a TIME deadline), so the budget shrinks
+ * with the deadline and the agent degrades to cheap decisions instead of timing out; under a ROUND
+ * deadline the remaining wall-clock time is unknown and a fixed budget per round is used. The cost of
+ * scoring a candidate and of rescoring a buffered bid are tracked as exponentially weighted moving
+ * averages, which give the number of candidates that fit in the budget and the number of rounds
+ * between rescores that keeps the rescoring's share of the budget bounded.
+ */
+public class ComputeBudget {
+
+    private static final double SMOOTHING = 0.2; // weight of a new measurement in the moving averages
+    private static final double GENERATION_SHARE = 0.8; // share of the round budget for candidate generation
+    private static final double RESCORE_SHARE = 0.2; // share of the round budget for rescoring, amortised
+    private static final long ROUND_BUDGET_NANOS = 10000000L; // budget per round without a TIME deadline
+    private static final double INITIAL_NANOS_PER_CANDIDATE = 2000.0; // guess until the first measurement
+
+    private TimeLineInfo timeline;
+    private double budgetFraction; // fraction of the remaining time a round may use
+    private int minCandidates;
+    private int maxCandidates;
+    private int maxRescoreInterval;
+
+    private double nanosPerCandidate; // moving average of the cost of scoring a candidate
+    private double nanosPerRescoredBid; // moving average of the cost of rescoring a buffered bid, 0 until measured
+
+    /**
+     * @param timeline The timeline of the negotiation
+     * @param budgetFraction The fraction of the remaining time a round may use
+     * @param minCandidates The number of candidates scored however little time is left
+     * @param maxCandidates The number of candidates scored however much time is left
+     * @param maxRescoreInterval The longest number of rounds between rescores
+     */
+    public ComputeBudget(TimeLineInfo timeline, double budgetFraction, int minCandidates, int maxCandidates, int maxRescoreInterval) {
+
+        this.timeline = timeline;
+        this.budgetFraction = budgetFraction;
+        this.minCandidates = minCandidates;
+        this.maxCandidates = Math.max(minCandidates, maxCandidates);
+        this.maxRescoreInterval = maxRescoreInterval;
+        this.nanosPerCandidate = INITIAL_NANOS_PER_CANDIDATE;
+    }
+
+    /**
+     * @return the wall-clock time the current round may use, in nanoseconds
+     */
+    public long getRoundBudgetNanos() {
+
+        if (this.timeline.getType() != TimeLineInfo.Type.Time)
+            return ROUND_BUDGET_NANOS;
+
+        double remainingSeconds = Math.max(0.0, this.timeline.getTotalTime() - this.timeline.getCurrentTime());
+        return (long) (this.budgetFraction * remainingSeconds * 1e9);
+    }
+
+    /**
+     * @return the number of candidates to score this round
+     */
+    public int getCandidateCount() {
+
+        double candidates = GENERATION_SHARE * getRoundBudgetNanos() / this.nanosPerCandidate;
+        return (int) Math.max(this.minCandidates, Math.min(this.maxCandidates, candidates));
+    }
+
+    /**
+     * @param bufferSize The number of buffered bids a rescore goes through
+     * @return the number of rounds between rescores of the buffer
+     */
+    public int getRescoreInterval(int bufferSize) {
+
+        if (this.nanosPerRescoredBid == 0.0)
+            return 1; // not measured yet
+
+        double rescoreNanos = this.nanosPerRescoredBid * bufferSize;
+        double interval = Math.ceil(rescoreNanos / (RESCORE_SHARE * Math.max(1L, getRoundBudgetNanos())));
+        return (int) Math.max(1, Math.min(this.maxRescoreInterval, interval));
+    }
+
+    /**
+     * Measure a candidate generation.
+     */
+    public void recordCandidates(int candidates, long nanos) {
+
+        if (candidates > 0)
+            this.nanosPerCandidate = smooth(this.nanosPerCandidate, nanos / (double) candidates);
+    }
+
+    /**
+     * Measure a rescore of the buffer.
+     */
+    public void recordRescore(int bids, long nanos) {
+
+        if (bids > 0) {
+            double nanosPerBid = nanos / (double) bids;
+            this.nanosPerRescoredBid = this.nanosPerRescoredBid == 0.0 ? nanosPerBid : smooth(this.nanosPerRescoredBid, nanosPerBid);
+        }
+    }
+
+    private static double smooth(double average, double measurement) {
+        return (1.0 - SMOOTHING) * average + SMOOTHING * measurement;
+    }
+}
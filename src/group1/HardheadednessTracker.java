@@ -0,0 +1,108 @@
+package group1;
+
+/**
+ * Tracks how often the opponent changes the value of each issue between consecutive bids,
+ * so that its hardheadedness over the last bids can be read without scanning the bid history.
+ *
+ * Every bid stores the running number of value changes (per issue and in total) up to it in a ring
+ * buffer. The changes within a window of the last w bids are then the difference between the running
+ * counts of the newest bid and of the bid w - 1 before it, so any window up to the size of the ring
+ * is answered in O(1), or O(issues) per issue, and several window sizes can be used side by side.
+ */
+public class HardheadednessTracker {
+
+    private int issueCount;
+    private int maxWindow; // the largest window that can be asked for, which is the size of the ring
+
+    private int[] previousBid; // the last encoded bid, null before the first one
+    private long bidCount;
+
+    private long[] issueChanges; // running value changes of every issue, up to the last bid
+    private long totalChanges; // running value changes over all issues, up to the last bid
+    private long[] ringIssueChanges; // issueChanges after bid k, at (k % maxWindow) * issueCount
+    private long[] ringTotalChanges; // totalChanges after bid k, at k % maxWindow
+
+    public HardheadednessTracker(int issueCount, int maxWindow) {
+
+        if (maxWindow < 1)
+            throw new IllegalArgumentException("Window must be positive: " + maxWindow);
+
+        this.issueCount = issueCount;
+        this.maxWindow = maxWindow;
+        this.issueChanges = new long[issueCount];
+        this.ringIssueChanges = new long[maxWindow * issueCount];
+        this.ringTotalChanges = new long[maxWindow];
+    }
+
+    /**
+     * @return the largest window that can be asked for
+     */
+    public int getMaxWindow() { return this.maxWindow; }
+
+    /**
+     * @return the number of bids added
+     */
+    public long getBidCount() { return this.bidCount; }
+
+    /**
+     * Record a bid, counting the issues whose value differs from the previous bid.
+     *
+     * @param bid The bid in encoded form
+     */
+    public void add(int[] bid) {
+
+        if (this.previousBid == null) {
+            this.previousBid = new int[this.issueCount];
+        } else {
+            for (int i = 0; i < this.issueCount; i++) {
+                if (bid[i] != this.previousBid[i]) {
+                    this.issueChanges[i]++;
+                    this.totalChanges++;
+                }
+            }
+        }
+        System.arraycopy(bid, 0, this.previousBid, 0, this.issueCount);
+
+        int slot = (int) (this.bidCount % this.maxWindow);
+        System.arraycopy(this.issueChanges, 0, this.ringIssueChanges, slot * this.issueCount, this.issueCount);
+        this.ringTotalChanges[slot] = this.totalChanges;
+        this.bidCount++;
+    }
+
+    /**
+     * The number of times the value of each issue changed within the last bids.
+     *
+     * @param window The number of bids, at most the number added and the largest window
+     * @param changes The array receiving the number of changes of every issue
+     */
+    public void getValueUpdateFrequency(int window, int[] changes) {
+
+        int slot = firstSlot(window);
+
+        for (int i = 0; i < this.issueCount; i++) {
+            changes[i] = (int) (this.issueChanges[i] - this.ringIssueChanges[slot * this.issueCount + i]);
+        }
+    }
+
+    /**
+     * @param window The number of bids, at most the number added and the largest window
+     * @return range 0-1 on how stubborn the opponent was within the last bids:
+     * 1 - no updates in bids, 0 - all bids updated
+     */
+    public double getHardheadedness(int window) {
+
+        long changes = this.totalChanges - this.ringTotalChanges[firstSlot(window)];
+        return 1 - (changes / (double) this.issueCount) / (double) window;
+    }
+
+    /**
+     * @return the slot of the oldest bid of the window, whose running counts precede the window's changes
+     */
+    private int firstSlot(int window) {
+
+        if (window < 1 || window > this.maxWindow || window > this.bidCount)
+            throw new IllegalArgumentException("Window " + window + " outside 1.." + Math.min(this.maxWindow, this.bidCount));
+
+        return (int) ((this.bidCount - window) % this.maxWindow);
+    }
+}
@@ -0,0 +1,113 @@
+package group1;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds with log-linear buckets, in the style of HdrHistogram:
+ * every power of two is split into 16 linear sub-buckets, so a recorded value is off by at most
+ * 1/16 (about 6%) whatever its magnitude. Recording is lock-free (one atomic increment per bucket
+ * plus the totals), so any thread may record while another reads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private AtomicLongArray counts;
+    private AtomicLong totalCount;
+    private AtomicLong totalNanos;
+    private AtomicLong maxNanos;
+
+    public LatencyHistogram() {
+
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.totalCount = new AtomicLong();
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+    }
+
+    /**
+     * @param nanos The latency to record; negative values are recorded as zero
+     */
+    public void record(long nanos) {
+
+        nanos = Math.max(0L, nanos);
+        this.counts.incrementAndGet(bucketOf(nanos));
+        this.totalCount.incrementAndGet();
+        this.totalNanos.addAndGet(nanos);
+
+        long max = this.maxNanos.get();
+        while (nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+            max = this.maxNanos.get();
+        }
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    public long getCount() { return this.totalCount.get(); }
+
+    /**
+     * @return the mean of the values recorded, in nanoseconds
+     */
+    public double getMean() {
+
+        long count = this.totalCount.get();
+        return count == 0 ? 0.0 : this.totalNanos.get() / (double) count;
+    }
+
+    /**
+     * @return the largest value recorded, in nanoseconds
+     */
+    public long getMax() { return this.maxNanos.get(); }
+
+    /**
+     * @param percentile The percentile, from 0 to 100
+     * @return the upper end of the bucket holding the percentile, in nanoseconds (0 when empty)
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        long count = this.totalCount.get();
+
+        if (count == 0)
+            return 0L;
+
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += this.counts.get(bucket);
+
+            if (seen >= rank)
+                return Math.min(upperBoundOf(bucket), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Values below 16 have a bucket each; above that, the leading one bit picks the power of two
+     * and the four bits below it the sub-bucket.
+     */
+    private static int bucketOf(long value) {
+
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,385 @@
+package group1;
+
+import genius.core.Bid;
+import genius.core.uncertainty.BidRanking;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persists what the agent learned in a session, so that later sessions on the same domain start warm:
+ * the estimated utility table per domain and ranking, the opponent utility table per opponent class
+ * and domain, and concession statistics per opponent class and domain.
+ *
+ * The file is a flat list of records (kind, key, length, doubles) behind a small header. It is read
+ * into a heap buffer in one go when opened and only the record headers are read into an index; values
+ * are read straight from the buffer when asked for, so opening costs no deserialisation. Saving merges
+ * under a lock on a sidecar file (the store file plus ".lock"): it re-reads the file, replaces the records
+ * put since opening, adds the records added since opening to the ones in the file, keeps every other
+ * record, and writes the result to a temporary file that replaces the old one. Concurrent sessions thus
+ * never see a partial file nor lose each other's records or counts. The file is not memory-mapped: Windows
+ * refuses to replace a file while any mapping of it is alive, and mappings are only released when garbage collected.
+ *
+ * The file defaults to group1-models.bin in the temporary directory; set -Dgroup1.store to another
+ * file, or to "none" to turn persistence off.
+ */
+public class ModelStore {
+
+    public static final int UTILITY_TABLE = 1;
+    public static final int OPPONENT_UTILITY_TABLE = 2;
+    public static final int CONCESSION_STATISTICS = 3;
+
+    private static final int MAGIC = 0x47314D53; // "G1MS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12; // magic, version, record count
+    private static final int RECORD_HEADER_BYTES = 16; // kind, key, length
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private static final Object SAVE_LOCK = new Object(); // file locks are held per process, not per thread
+
+    private File file;
+    private ByteBuffer contents; // the file as read when opened, null when there was no (valid) file
+    private Map<Long, Integer> offsets; // offset in the contents of the values of every record
+    private Map<Long, double[]> updates; // records put since opening, to be saved
+    private Map<Long, double[]> additions; // records added since opening, to be added to the saved ones
+
+    private ModelStore(File file) {
+
+        this.file = file;
+        this.offsets = new HashMap<Long, Integer>();
+        this.updates = new LinkedHashMap<Long, double[]>();
+        this.additions = new LinkedHashMap<Long, double[]>();
+    }
+
+    /**
+     * @return the file set by -Dgroup1.store, or the default file; null when persistence is off
+     */
+    public static File getDefaultFile() {
+
+        String path = System.getProperty("group1.store");
+
+        if ("none".equals(path))
+            return null;
+
+        return path == null ? new File(System.getProperty("java.io.tmpdir"), "group1-models.bin") : new File(path);
+    }
+
+    /**
+     * Read a store file. A missing or unreadable file gives an empty store, which is created on save.
+     *
+     * @param file The store file
+     * @return the store
+     */
+    public static ModelStore open(File file) {
+
+        ModelStore store = new ModelStore(file);
+
+        if (!file.isFile())
+            return store;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer contents = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+
+            while (contents.hasRemaining() && channel.read(contents) >= 0) { }
+            contents.flip();
+            store.index(contents);
+        } catch (IOException e) {
+            e.printStackTrace(); // start cold
+        }
+        return store;
+    }
+
+    /**
+     * Read the record headers, stopping at the first record that does not fit in the file.
+     */
+    private void index(ByteBuffer contents) {
+
+        if (contents.limit() < HEADER_BYTES || contents.getInt(0) != MAGIC || contents.getInt(4) != VERSION)
+            return;
+
+        int recordCount = contents.getInt(8);
+        int position = HEADER_BYTES;
+
+        for (int r = 0; r < recordCount && position + RECORD_HEADER_BYTES <= contents.limit(); r++) {
+            int kind = contents.getInt(position);
+            long key = contents.getLong(position + 4);
+            int length = contents.getInt(position + 12);
+            int valuesOffset = position + RECORD_HEADER_BYTES;
+
+            if (length < 0 || valuesOffset + 8L * length > contents.limit())
+                break;
+
+            this.offsets.put(recordKey(kind, key), valuesOffset);
+            position = valuesOffset + 8 * length;
+        }
+        this.contents = contents;
+    }
+
+    /**
+     * Read a record into the given array, including what was added to it since opening.
+     *
+     * @param kind The kind of record
+     * @param key The key of the record
+     * @param values The array receiving the values, whose length the record must have
+     * @return whether the record exists with that length
+     */
+    public boolean read(int kind, long key, double[] values) {
+
+        Long recordKey = recordKey(kind, key);
+        double[] addition = this.additions.get(recordKey);
+        boolean found = readStored(recordKey, values);
+
+        if (addition == null || addition.length != values.length)
+            return found;
+
+        if (!found)
+            Arrays.fill(values, 0.0);
+
+        for (int v = 0; v < values.length; v++) { values[v] += addition[v]; }
+        return true;
+    }
+
+    /**
+     * Read a record as put since opening or as read when opening.
+     */
+    private boolean readStored(Long recordKey, double[] values) {
+
+        double[] update = this.updates.get(recordKey);
+
+        if (update != null) {
+            if (update.length != values.length)
+                return false;
+
+            System.arraycopy(update, 0, values, 0, values.length);
+            return true;
+        }
+
+        Integer offset = this.offsets.get(recordKey);
+
+        if (offset == null || this.contents.getInt(offset - 4) != values.length)
+            return false;
+
+        for (int v = 0; v < values.length; v++) { values[v] = this.contents.getDouble(offset + 8 * v); }
+        return true;
+    }
+
+    /**
+     * @return a read-only view of the store file as read when opened (or last saved), empty when there was no
+     *         valid file; opening a copy of it gives a store that reads the same
+     */
+    public ByteBuffer getContents() {
+
+        return this.contents == null ? ByteBuffer.allocate(0) : this.contents.asReadOnlyBuffer();
+    }
+
+    /**
+     * Set a record, replacing any record of the same kind and key when saved.
+     */
+    public void put(int kind, long key, double[] values) {
+
+        this.updates.put(recordKey(kind, key), values.clone());
+    }
+
+    /**
+     * Add to a record, such as counts: the values are added to the record in the file when saved, so
+     * additions by sessions saving in between are kept. A record of another length is replaced.
+     */
+    public void add(int kind, long key, double[] values) {
+
+        Long recordKey = recordKey(kind, key);
+        double[] addition = this.additions.get(recordKey);
+
+        if (addition == null || addition.length != values.length) {
+            this.additions.put(recordKey, values.clone());
+        } else {
+            for (int v = 0; v < values.length; v++) { addition[v] += values[v]; }
+        }
+    }
+
+    /**
+     * Read a utility table record.
+     *
+     * @return whether the record exists for a table of this size
+     */
+    public boolean readUtilityTable(int kind, long key, UtilityTable table) {
+
+        BidEncoder encoder = table.getEncoder();
+        double[] values = new double[encoder.getTotalValues()];
+
+        if (!read(kind, key, values))
+            return false;
+
+        for (int i = 0; i < encoder.getIssueCount(); i++) {
+            for (int j = 0; j < encoder.getValueCount(i); j++) { table.set(i, j, values[encoder.getOffset(i) + j]); }
+        }
+        return true;
+    }
+
+    /**
+     * Set a utility table record.
+     */
+    public void putUtilityTable(int kind, long key, UtilityTable table) {
+
+        BidEncoder encoder = table.getEncoder();
+        double[] values = new double[encoder.getTotalValues()];
+
+        for (int i = 0; i < encoder.getIssueCount(); i++) {
+            for (int j = 0; j < encoder.getValueCount(i); j++) { values[encoder.getOffset(i) + j] = table.get(i, j); }
+        }
+        this.updates.put(recordKey(kind, key), values);
+    }
+
+    /**
+     * Merge the records put and added since opening into the current store file, under the lock, and
+     * replace the file with the result.
+     */
+    public void save() {
+
+        if (this.updates.isEmpty() && this.additions.isEmpty())
+            return;
+
+        File directory = this.file.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+
+        synchronized (SAVE_LOCK) {
+            try (FileChannel lockChannel = FileChannel.open(new File(this.file.getPath() + ".lock").toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                lockChannel.lock(); // released when the channel is closed
+
+                ByteBuffer buffer = merge(open(this.file));
+                File temporary = File.createTempFile("group1-models", ".tmp", directory);
+
+                try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.WRITE)) {
+                    while (buffer.hasRemaining()) { channel.write(buffer); }
+                }
+
+                try {
+                    Files.move(temporary.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    Files.move(temporary.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                // Continue from what was saved
+                this.offsets.clear();
+                this.updates.clear();
+                this.additions.clear();
+                buffer.rewind();
+                index(buffer);
+            } catch (IOException e) {
+                e.printStackTrace(); // the next session starts cold
+            }
+        }
+    }
+
+    /**
+     * @param current The store as it is in the file now
+     * @return the records of the current store with the ones of this store put and added, serialised
+     */
+    private ByteBuffer merge(ModelStore current) {
+
+        Map<Long, double[]> records = new LinkedHashMap<Long, double[]>();
+
+        for (Map.Entry<Long, Integer> entry : current.offsets.entrySet()) {
+            double[] values = new double[current.contents.getInt(entry.getValue() - 4)];
+            current.readStored(entry.getKey(), values);
+            records.put(entry.getKey(), values);
+        }
+        records.putAll(this.updates);
+
+        for (Map.Entry<Long, double[]> entry : this.additions.entrySet()) {
+            double[] addition = entry.getValue();
+            double[] values = records.get(entry.getKey());
+
+            if (values == null || values.length != addition.length) {
+                records.put(entry.getKey(), addition.clone());
+            } else {
+                for (int v = 0; v < values.length; v++) { values[v] += addition[v]; }
+            }
+        }
+
+        long size = HEADER_BYTES;
+        for (double[] values : records.values()) { size += RECORD_HEADER_BYTES + 8L * values.length; }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(records.size());
+
+        for (Map.Entry<Long, double[]> entry : records.entrySet()) {
+            double[] values = entry.getValue();
+            buffer.putInt(kindOf(entry.getKey())).putLong(keyOf(entry.getKey())).putInt(values.length);
+            for (double value : values) { buffer.putDouble(value); }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return a fingerprint of the issues and values of the domain of the encoder
+     */
+    public static long fingerprint(BidEncoder encoder) {
+
+        long hash = FNV_OFFSET_BASIS;
+
+        for (int i = 0; i < encoder.getIssueCount(); i++) {
+            hash = mix(hash, encoder.getIssue(i).getName().hashCode());
+
+            for (int j = 0; j < encoder.getValueCount(i); j++) { hash = mix(hash, encoder.getIssue(i).getValue(j).toString().hashCode()); }
+        }
+        return hash;
+    }
+
+    /**
+     * @return a fingerprint of the domain and the ordered bids and utility bounds of the ranking
+     */
+    public static long fingerprint(BidEncoder encoder, BidRanking bidRanking) {
+
+        long hash = fingerprint(encoder);
+        int[] encodedBid = new int[encoder.getIssueCount()];
+
+        for (Bid bid : bidRanking.getBidOrder()) {
+            encoder.encode(bid, encodedBid);
+            for (int value : encodedBid) { hash = mix(hash, value); }
+        }
+        hash = mix(hash, Double.hashCode(bidRanking.getLowUtility()));
+        return mix(hash, Double.hashCode(bidRanking.getHighUtility()));
+    }
+
+    /**
+     * @return a fingerprint of the domain and a name, such as an opponent class
+     */
+    public static long fingerprint(BidEncoder encoder, String name) {
+
+        return mix(fingerprint(encoder), name.hashCode());
+    }
+
+    /**
+     * FNV-1a over the four bytes of a value.
+     */
+    private static long mix(long hash, int value) {
+
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash ^= (value >>> shift) & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * The kind is kept in the two low bits, which the keys give up; fingerprints have bits to spare.
+     */
+    private static Long recordKey(int kind, long key) { return (key & ~3L) | kind; }
+
+    private static int kindOf(long recordKey) { return (int) (recordKey & 3L); }
+
+    private static long keyOf(long recordKey) { return recordKey & ~3L; }
+}
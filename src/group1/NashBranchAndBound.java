@@ -0,0 +1,230 @@
+package group1;
+
+import java.util.Arrays;
+
+/**
+ * Exact search for the bid with the highest Nash product (our utility times the opponents' utility
+ * product) among the bids with at least a target utility, without enumerating the outcome space.
+ *
+ * The bid is built issue by issue, depth first. Because every utility is additive, the best any
+ * completion of a partial bid can reach is bounded by adding, per party, the highest remaining
+ * contribution of every unassigned issue; a branch is pruned when that bound cannot beat the best
+ * bid found so far, or when even the highest remaining utility of ours cannot reach the target.
+ * Issues with the widest spread of utilities are assigned first and values are tried best first,
+ * so good bids (and tight bounds) are found early. The search starts from the bid of maximal
+ * utility to us, and stops at a node or time budget with the best bid found so far.
+ */
+public class NashBranchAndBound {
+
+    private static final double EPSILON = 1e-12; // tolerance for rounding in the target comparison
+    private static final int TIME_CHECK_INTERVAL = 1024; // nodes between reads of the clock
+
+    private long maxNodes;
+
+    // Per search, indexed by position in the issue order
+    private int issueCount;
+    private int opponentCount;
+    private int[] issueOrder;
+    private int[][] valueOrder; // value indices of the issue at a position, best first
+    private double[][] utilities; // our utility of those values
+    private double[][][] opponentUtilities; // [opponent][position][value order] utility of those values
+    private double[] suffixMaxUtility; // highest utility of ours of the positions p and above
+    private double[][] suffixMaxOpponentUtilities; // [opponent][position] the same for every opponent
+    private double[][] partialOpponentUtilities; // [depth][opponent] utilities of the assigned positions
+
+    private double targetUtility;
+    private int[] current; // value order index chosen at every position
+    private int[] best; // value index of every issue of the best bid
+    private double bestNashProduct;
+    private long nodeCount;
+    private long startNanos;
+    private long timeBudgetNanos;
+    private boolean complete;
+
+    /**
+     * @param maxNodes The most nodes a search may visit
+     */
+    public NashBranchAndBound(long maxNodes) {
+
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Search the bid with the highest Nash product and at least the target utility.
+     *
+     * @param utilityTable Our utility table
+     * @param opponentUtilities The (snapshot) utility tables of the opponent models
+     * @param targetUtility The lowest utility of ours the bid may have; clamped to the maximal utility
+     * @param timeBudgetNanos The wall-clock time the search may take
+     * @param bid The array receiving the best encoded bid found
+     * @return the Nash product of the bid
+     */
+    public double search(UtilityTable utilityTable, OpponentUtilities opponentUtilities, double targetUtility,
+                         long timeBudgetNanos, int[] bid) {
+
+        prepare(utilityTable, opponentUtilities);
+
+        this.targetUtility = Math.min(targetUtility, this.suffixMaxUtility[0]) - EPSILON;
+        this.nodeCount = 0;
+        this.startNanos = System.nanoTime();
+        this.timeBudgetNanos = timeBudgetNanos; // compared with the elapsed time, so Long.MAX_VALUE cannot overflow
+        this.complete = true;
+
+        // Start from the bid of maximal utility to us, which always meets the target
+        Arrays.fill(this.current, 0);
+        this.bestNashProduct = Double.NEGATIVE_INFINITY;
+        double utility = 0.0;
+        for (int p = 0; p < this.issueCount; p++) { utility += this.utilities[p][0]; }
+        for (int k = 0; k < this.opponentCount; k++) {
+            double opponentUtility = 0.0;
+            for (int p = 0; p < this.issueCount; p++) { opponentUtility += this.opponentUtilities[k][p][0]; }
+            this.partialOpponentUtilities[this.issueCount][k] = opponentUtility;
+        }
+        record(utility);
+
+        visit(0, 0.0);
+
+        System.arraycopy(this.best, 0, bid, 0, this.issueCount);
+        return this.bestNashProduct;
+    }
+
+    /**
+     * @return the number of nodes the last search visited
+     */
+    public long getNodeCount() { return this.nodeCount; }
+
+    /**
+     * @return whether the last search finished within its budget, so that its bid is optimal
+     */
+    public boolean isComplete() { return this.complete; }
+
+    /**
+     * Order the issues and their values, and compute the suffix bounds.
+     */
+    private void prepare(UtilityTable utilityTable, OpponentUtilities opponentUtilities) {
+
+        BidEncoder encoder = utilityTable.getEncoder();
+        this.issueCount = encoder.getIssueCount();
+        this.opponentCount = opponentUtilities.size();
+
+        // Widest spread of our utility first
+        Integer[] issues = new Integer[this.issueCount];
+        double[] spreads = new double[this.issueCount];
+
+        for (int i = 0; i < this.issueCount; i++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+
+            for (int j = 0; j < encoder.getValueCount(i); j++) {
+                min = Math.min(min, utilityTable.get(i, j));
+                max = Math.max(max, utilityTable.get(i, j));
+            }
+            issues[i] = i;
+            spreads[i] = max - min;
+        }
+        Arrays.sort(issues, (a, b) -> Double.compare(spreads[b], spreads[a]));
+
+        this.issueOrder = new int[this.issueCount];
+        this.valueOrder = new int[this.issueCount][];
+        this.utilities = new double[this.issueCount][];
+        this.opponentUtilities = new double[this.opponentCount][this.issueCount][];
+        this.suffixMaxUtility = new double[this.issueCount + 1];
+        this.suffixMaxOpponentUtilities = new double[this.opponentCount][this.issueCount + 1];
+        this.partialOpponentUtilities = new double[this.issueCount + 1][this.opponentCount];
+        this.current = new int[this.issueCount];
+        this.best = new int[this.issueCount];
+
+        for (int p = 0; p < this.issueCount; p++) {
+            int issue = issues[p];
+            int valueCount = encoder.getValueCount(issue);
+            this.issueOrder[p] = issue;
+
+            // Values in descending order of our utility, so the first completion is the maximal bid
+            Integer[] values = new Integer[valueCount];
+            for (int j = 0; j < valueCount; j++) { values[j] = j; }
+            Arrays.sort(values, (a, b) -> Double.compare(utilityTable.get(issue, b), utilityTable.get(issue, a)));
+
+            this.valueOrder[p] = new int[valueCount];
+            this.utilities[p] = new double[valueCount];
+            for (int k = 0; k < this.opponentCount; k++) { this.opponentUtilities[k][p] = new double[valueCount]; }
+
+            for (int j = 0; j < valueCount; j++) {
+                this.valueOrder[p][j] = values[j];
+                this.utilities[p][j] = utilityTable.get(issue, values[j]);
+
+                for (int k = 0; k < this.opponentCount; k++) {
+                    this.opponentUtilities[k][p][j] = opponentUtilities.getTable(k).get(issue, values[j]);
+                }
+            }
+        }
+
+        for (int p = this.issueCount - 1; p >= 0; p--) {
+            this.suffixMaxUtility[p] = this.suffixMaxUtility[p + 1] + this.utilities[p][0];
+
+            for (int k = 0; k < this.opponentCount; k++) {
+                double max = Double.NEGATIVE_INFINITY;
+                for (double opponentUtility : this.opponentUtilities[k][p]) { max = Math.max(max, opponentUtility); }
+                this.suffixMaxOpponentUtilities[k][p] = this.suffixMaxOpponentUtilities[k][p + 1] + max;
+            }
+        }
+    }
+
+    /**
+     * Assign the issue at a position, given our utility of the positions before it
+     * (the opponents' are in partialOpponentUtilities[position]).
+     */
+    private void visit(int position, double utility) {
+
+        if (position == this.issueCount) {
+            record(utility);
+            return;
+        }
+
+        double[] partial = this.partialOpponentUtilities[position];
+        double[] next = this.partialOpponentUtilities[position + 1];
+
+        for (int j = 0; j < this.valueOrder[position].length; j++) {
+
+            if (++this.nodeCount > this.maxNodes || (this.nodeCount % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - this.startNanos > this.timeBudgetNanos)) {
+                this.complete = false;
+                return;
+            }
+
+            double nextUtility = utility + this.utilities[position][j];
+
+            // Values are in descending order of our utility, so no later value can reach the target either
+            if (nextUtility + this.suffixMaxUtility[position + 1] < this.targetUtility)
+                return;
+
+            double bound = nextUtility + this.suffixMaxUtility[position + 1];
+
+            for (int k = 0; k < this.opponentCount; k++) {
+                next[k] = partial[k] + this.opponentUtilities[k][position][j];
+                bound *= next[k] + this.suffixMaxOpponentUtilities[k][position + 1];
+            }
+
+            if (bound <= this.bestNashProduct)
+                continue;
+
+            this.current[position] = j;
+            visit(position + 1, nextUtility);
+
+            if (!this.complete)
+                return;
+        }
+    }
+
+    /**
+     * Keep the complete bid in current when it beats the best one.
+     */
+    private void record(double utility) {
+
+        double nashProduct = utility;
+        for (int k = 0; k < this.opponentCount; k++) { nashProduct *= this.partialOpponentUtilities[this.issueCount][k]; }
+
+        if (nashProduct > this.bestNashProduct) {
+            this.bestNashProduct = nashProduct;
+            for (int p = 0; p < this.issueCount; p++) { this.best[this.issueOrder[p]] = this.valueOrder[p][this.current[p]]; }
+        }
+    }
+}
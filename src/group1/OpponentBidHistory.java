@@ -0,0 +1,214 @@
+package group1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The bids received from an opponent, stored column by column: per issue a byte (or, for issues with
+ * more than 256 values, a short) column of value indices, and a double column with our utility of the
+ * bid, in chunks that are allocated as the history grows. A bid takes one or two bytes per issue plus
+ * eight for the utility, instead of a Bid object with its value map.
+ *
+ * Next to the columns it keeps exponentially decayed value frequencies: a bid counts for one when it is
+ * received, and half as much with every halfLife bids received after it. Rather than decaying every
+ * frequency on every bid, each new bid adds an increment that grows by the inverse decay factor, so that
+ * only the offered values change; the decayed frequency is the raw sum divided by the newest increment.
+ * The raw sums are rescaled once the increment gets large, which happens once per many thousands of bids.
+ */
+public class OpponentBidHistory {
+
+    private static final int CHUNK_SIZE = 1024; // bids per chunk
+    private static final double MAX_INCREMENT = 1e64; // rescale before the squared sums can overflow
+
+    private BidEncoder encoder;
+    private int issueCount;
+    private boolean[] wide; // whether the issue needs a short column
+    private List<Chunk> chunks;
+    private long size;
+
+    private double decay; // factor by which a frequency decays per bid
+    private double increment; // the weight of the next bid in the raw frequencies
+    private double[] rawFrequency; // decayed frequency times increment, indexed by issue offset + value index
+    private double[] maxRawFrequency; // highest raw frequency of each issue
+    private double[] squaredRawSum; // sum of the squared raw frequencies of each issue
+    private double squaredRawTotal; // sum of squaredRawSum over all issues
+
+    /**
+     * A fixed number of bids, as one column per issue and a column of utilities.
+     */
+    private static class Chunk {
+
+        private byte[][] narrowColumns; // columns of the issues with at most 256 values, null for the others
+        private short[][] wideColumns; // columns of the other issues, null for the narrow ones
+        private double[] utilities;
+
+        Chunk(boolean[] wide) {
+
+            this.narrowColumns = new byte[wide.length][];
+            this.wideColumns = new short[wide.length][];
+            this.utilities = new double[CHUNK_SIZE];
+
+            for (int i = 0; i < wide.length; i++) {
+                if (wide[i]) { this.wideColumns[i] = new short[CHUNK_SIZE]; }
+                else { this.narrowColumns[i] = new byte[CHUNK_SIZE]; }
+            }
+        }
+    }
+
+    /**
+     * @param encoder The encoder of the domain
+     * @param halfLife The number of bids after which a bid counts half in the decayed frequencies
+     */
+    public OpponentBidHistory(BidEncoder encoder, double halfLife) {
+
+        if (halfLife <= 0.0)
+            throw new IllegalArgumentException("Half-life must be positive: " + halfLife);
+
+        this.encoder = encoder;
+        this.issueCount = encoder.getIssueCount();
+        this.wide = new boolean[this.issueCount];
+        this.chunks = new ArrayList<Chunk>();
+
+        for (int i = 0; i < this.issueCount; i++) {
+            if (encoder.getValueCount(i) > 1 << 16)
+                throw new IllegalArgumentException("Issue " + encoder.getIssue(i).getName() + " has more than " + (1 << 16) + " values");
+
+            this.wide[i] = encoder.getValueCount(i) > 1 << 8;
+        }
+
+        this.decay = Math.pow(0.5, 1.0 / halfLife);
+        this.increment = 1.0;
+        this.rawFrequency = new double[encoder.getTotalValues()];
+        this.maxRawFrequency = new double[this.issueCount];
+        this.squaredRawSum = new double[this.issueCount];
+    }
+
+    /**
+     * @return the number of bids received
+     */
+    public long size() { return this.size; }
+
+    /**
+     * Append a bid and update the decayed frequencies of its values.
+     *
+     * @param bid The bid in encoded form
+     * @param utility Our utility of the bid, or NaN when unknown
+     */
+    public void add(int[] bid, double utility) {
+
+        int row = (int) (this.size % CHUNK_SIZE);
+
+        if (row == 0)
+            this.chunks.add(new Chunk(this.wide));
+
+        Chunk chunk = this.chunks.get(this.chunks.size() - 1);
+
+        for (int i = 0; i < this.issueCount; i++) {
+            if (this.wide[i]) { chunk.wideColumns[i][row] = (short) bid[i]; }
+            else { chunk.narrowColumns[i][row] = (byte) bid[i]; }
+        }
+        chunk.utilities[row] = utility;
+        this.size++;
+
+        if (this.increment > MAX_INCREMENT)
+            rescale();
+
+        for (int i = 0; i < this.issueCount; i++) {
+
+            int index = this.encoder.getOffset(i) + bid[i];
+            double frequency = this.rawFrequency[index];
+
+            // (f + g)^2 - f^2 = (2f + g) g
+            double squaredChange = (2.0 * frequency + this.increment) * this.increment;
+            this.squaredRawSum[i] += squaredChange;
+            this.squaredRawTotal += squaredChange;
+
+            this.rawFrequency[index] = frequency + this.increment;
+            if (frequency + this.increment > this.maxRawFrequency[i]) { this.maxRawFrequency[i] = frequency + this.increment; }
+        }
+        this.increment /= this.decay;
+    }
+
+    /**
+     * Divide the raw frequencies by the increment, which does not change any decayed frequency.
+     */
+    private void rescale() {
+
+        for (int v = 0; v < this.rawFrequency.length; v++) { this.rawFrequency[v] /= this.increment; }
+
+        this.squaredRawTotal = 0.0;
+
+        for (int i = 0; i < this.issueCount; i++) {
+            this.maxRawFrequency[i] /= this.increment;
+            this.squaredRawSum[i] = 0.0;
+
+            for (int j = 0; j < this.encoder.getValueCount(i); j++) {
+                double frequency = this.rawFrequency[this.encoder.getOffset(i) + j];
+                this.squaredRawSum[i] += frequency * frequency;
+            }
+            this.squaredRawTotal += this.squaredRawSum[i];
+        }
+        this.increment = 1.0;
+    }
+
+    /**
+     * Read a bid.
+     *
+     * @param index The number of bids received before it
+     * @param bid The array receiving the encoded bid
+     */
+    public void get(long index, int[] bid) {
+
+        Chunk chunk = chunk(index);
+        int row = (int) (index % CHUNK_SIZE);
+
+        for (int i = 0; i < this.issueCount; i++) {
+            bid[i] = this.wide[i] ? chunk.wideColumns[i][row] & 0xFFFF : chunk.narrowColumns[i][row] & 0xFF;
+        }
+    }
+
+    /**
+     * @param index The number of bids received before it
+     * @return our utility of a bid, or NaN when it was not known
+     */
+    public double getUtility(long index) { return chunk(index).utilities[(int) (index % CHUNK_SIZE)]; }
+
+    private Chunk chunk(long index) {
+
+        if (index < 0 || index >= this.size)
+            throw new IndexOutOfBoundsException("Bid " + index + " outside 0.." + (this.size - 1));
+
+        return this.chunks.get((int) (index / CHUNK_SIZE));
+    }
+
+    /**
+     * @return the decayed number of times the given value was offered
+     */
+    public double getDecayedFrequency(int issue, int value) {
+
+        return this.rawFrequency[this.encoder.getOffset(issue) + value] / (this.increment * this.decay);
+    }
+
+    /**
+     * @return the decayed frequency of the given value relative to the most frequent value of its issue, 0 before any bid
+     */
+    public double getRelativeFrequency(int issue, int value) {
+
+        if (this.maxRawFrequency[issue] == 0.0)
+            return 0.0;
+
+        return this.rawFrequency[this.encoder.getOffset(issue) + value] / this.maxRawFrequency[issue];
+    }
+
+    /**
+     * @return the sum of the squared decayed frequencies of the issue's values, relative to that sum over all issues;
+     * 0 before any bid
+     */
+    public double getConcentration(int issue) {
+
+        if (this.squaredRawTotal == 0.0)
+            return 0.0;
+
+        return this.squaredRawSum[issue] / this.squaredRawTotal;
+    }
+}
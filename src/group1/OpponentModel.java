@@ -1,48 +1,42 @@
 package group1;
 import genius.core.Bid;
-import genius.core.BidHistory;
-import genius.core.bidding.BidDetails;
-import genius.core.issue.Issue;
-import genius.core.issue.Value;
-import genius.core.issue.ValueDiscrete;
-import genius.core.utility.EvaluatorDiscrete;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 
 public class OpponentModel {
 
-    private EvaluatorDiscrete[] issuesList; // preference value of the issue list
-    private int issueTotal; // the number issues in the domain
-    private int[] issueIdList; // the id list of the issues
+    static final int MAX_HARDHEADEDNESS_WINDOW = 100; // the most rounds hardheaded can look back
+    private static final int PRIOR_BIDS = 20; // bids after which a prior no longer counts
+    private static final double FREQUENCY_HALF_LIFE = 500; // bids after which a bid counts half in the frequencies
 
-    private BidHistory historyBid;  // the opponents bidding history
-    private List<Double> historyUtility; // values for the historical utility
+    private int issueTotal; // the number issues in the domain
 
-    public OpponentModel(Bid bid) {
+    private OpponentBidHistory history; // the opponents bidding history, with our utility of every bid
 
-        List<Issue> issueList = bid.getIssues();
+    private BidEncoder encoder; // encoder of the domain, used for the utility table
+    private UtilityTable utilityTable; // estimated opponent utility per value, rebuilt lazily
+    private boolean utilityTableDirty; // whether the weights changed since the table was built
 
-        this.issueTotal = issueList.size();
-        this.issueIdList = new int[this.issueTotal];
-        this.historyBid = new BidHistory();
-        this.historyUtility = new ArrayList<>();
+    private double[] issueWeight; // weight of each issue, from the concentration of its value frequencies
 
-        // Append the bid's issue number to the issueList
-        for (int i = 0; i < getTotalIssues(); i++) { this.issueIdList[i] = bid.getIssues().get(i).getNumber(); }
+    private UtilityTable prior; // utility table learned in earlier sessions; null when there is none
+    private HardheadednessTracker hardheadednessTracker; // value changes between consecutive bids
 
-        this.issuesList = new EvaluatorDiscrete[getTotalIssues()];
+    private AgentMetrics metrics; // records setWeightValues; null when not instrumented
 
-        // Generate evaluators for each issue
-        for (int i = 0; i < getTotalIssues(); i++) { this.issuesList[i] = new EvaluatorDiscrete(); }
+    public OpponentModel(BidEncoder encoder) {
+        this(encoder, null);
     }
 
-    /**
-     * Get issue list
-     * @return issue list
-     */
-    public EvaluatorDiscrete[] getIssuesList() { return this.issuesList; }
+    public OpponentModel(BidEncoder encoder, AgentMetrics metrics) {
+
+        this.encoder = encoder;
+        this.metrics = metrics;
+        this.issueTotal = encoder.getIssueCount();
+        this.history = new OpponentBidHistory(encoder, FREQUENCY_HALF_LIFE);
+        this.utilityTableDirty = true;
+
+        this.issueWeight = new double[this.issueTotal];
+        this.hardheadednessTracker = new HardheadednessTracker(this.issueTotal, MAX_HARDHEADEDNESS_WINDOW);
+    }
 
     /**
      * Get total issues
@@ -52,78 +46,14 @@ public class OpponentModel {
 
 
     /**
-     * Use frequency analysis to set the weights of each issues
-     *
-     * @return the hashmap containing the frequency to be used for weight computation
+     * @return the number of times the opponent offered the given value, with older bids counting less
      */
-    private HashMap<ValueDiscrete, Double> getWeightFreqAnalysis() {
-
-        HashMap<ValueDiscrete, Double> issueValues = new HashMap<ValueDiscrete, Double>();
-
-        // iterate over the issue list
-        for (int i = 0; i < this.issueTotal; i++) {
-
-            // Compute for the frequency of the issues's value found in the history bid
-            for (int j = 0; j < this.historyBid.size(); j++) {
-
-                // Get discrete value of the current issue in the bid history
-                ValueDiscrete value = (ValueDiscrete)(this.historyBid.getHistory().get(j).getBid()
-                        .getValue(this.issueIdList[i]));
-
-                // Increment the frequency to one if the value of the issue already exists in the hash map
-                if (issueValues.containsKey(value)) { issueValues.put(value, issueValues.get(value) + 1); }
-
-                // If not, add the value to the hash map and set it to 1
-                else { issueValues.put(value, 1.0); }
-            }
-            double maximum_frequency = 0.0;
-
-            // Get the maximum frequency from the list of frequencies
-            for (ValueDiscrete value : issueValues.keySet()) {
-                if (issueValues.get(value) > maximum_frequency) { maximum_frequency = issueValues.get(value); }
-            }
-
-            // Set the issue's evaluation equal to the issues value divided by the maximum frequency
-            for (ValueDiscrete value : issueValues.keySet()) {
-                try {
-                    getIssuesList()[i].setEvaluationDouble(value, issueValues.get(value) / maximum_frequency);
-                } catch (Exception error) { System.out.println(error.getMessage()); }
-            }
-        }
-        return issueValues;
-    }
+    public synchronized double getValueFrequency(int issue, int value) { return this.history.getDecayedFrequency(issue, value); }
 
     /**
-     * @return The array containing the number of times the value
-     * of each issue changed given the number of turns.
+     * @return the bids received, with our utility of every bid
      */
-    private int[] getValueUpdateFrequency(int turns) {
-
-        // The number of times the value of an issue has changed
-        int[] freqUpdate = new int[this.issueTotal];
-
-        for (int i = 0; i < this.issueTotal; i++) {
-
-            Value currIssueValue = null; // Current issue value
-            Value prevIssueVal = null; // Previous issue value
-
-            int freqNumber = 0;
-            int historyBidSize = this.historyBid.size() - 1;
-            int lastRound = this.historyBid.size() - turns - 1;
-
-            // Given the number of turns, loop through the bidding history starting from the end
-            for (int j = historyBidSize; j > lastRound; j--){
-                currIssueValue = this.historyBid.getHistory().get(j).getBid().getValue(this.issueIdList[i]);
-
-                // Increment frequency number if current value is not the same as the previous value.
-                if (prevIssueVal != null && !prevIssueVal.equals(currIssueValue)) { freqNumber++;}
-
-                prevIssueVal = currIssueValue;
-            }
-            freqUpdate[i] = freqNumber;
-        }
-        return freqUpdate;
-    }
+    public OpponentBidHistory getHistory() { return this.history; }
 
     /**
      * Given the opponent's utility, compute for its estimate.
@@ -131,95 +61,122 @@ public class OpponentModel {
      * @param bid The given bid used for the estimation
      * @return An approximation of the utility for the given bid
      */
-    public double getOpponentUtility(Bid bid) {
+    public double getOpponentUtility(Bid bid) { return getOpponentUtility(this.encoder.encode(bid)); }
+
+    /**
+     * Given the opponent's utility, compute for its estimate.
+     *
+     * @param bid The given bid in encoded form
+     * @return An approximation of the utility for the given bid
+     */
+    public double getOpponentUtility(int[] bid) { return getUtilityTable().getUtility(bid); }
 
-        double util = 0.0; // utility of the bid
-        HashMap<Integer, Value> bidVal = bid.getValues(); // bid values
+    /**
+     * Start from a utility table learned in earlier sessions against the same kind of opponent.
+     * The prior is blended with the frequency model, counting less with every bid received,
+     * until it is dropped after PRIOR_BIDS bids.
+     *
+     * @param prior The opponent utility table of an earlier session
+     */
+    public synchronized void setPrior(UtilityTable prior) {
 
-        // Compute the total utility of the opponent's bid
-        for (int i = 0; i < this.issueTotal; i++) {
+        this.prior = prior;
+        this.utilityTableDirty = true;
+    }
 
-            double weight = getIssuesList()[i].getWeight(); // weight of the current issue
-            ValueDiscrete bidDiscreteValue = (ValueDiscrete) bidVal.get(this.issueIdList[i]); // discrete values
+    /**
+     * Get the estimated utility of every value, weighted by the issue weights.
+     * The table is a snapshot: it is rebuilt only when a bid arrived since the last call,
+     * and later bids never modify a table that was already handed out.
+     *
+     * @return the utility table of the opponent
+     */
+    public synchronized UtilityTable getUtilityTable() {
+
+        if (this.utilityTableDirty) {
+            UtilityTable table = new UtilityTable(this.encoder);
+            double priorWeight = this.prior == null ? 0.0 : Math.max(0.0, 1.0 - this.hardheadednessTracker.getBidCount() / (double) PRIOR_BIDS);
 
-            if (( getIssuesList()[i]).getValues().contains(bidDiscreteValue)) {
-                util += getIssuesList()[i].getDoubleValue(bidDiscreteValue) * weight; // preference of the discrete values
+            for (int i = 0; i < this.issueTotal; i++) {
+                for (int j = 0; j < this.encoder.getValueCount(i); j++) {
+                    double utility = this.history.getRelativeFrequency(i, j) * this.issueWeight[i];
+                    table.set(i, j, priorWeight == 0.0 ? utility : (1.0 - priorWeight) * utility + priorWeight * this.prior.get(i, j));
+                }
             }
+            this.utilityTable = table;
+            this.utilityTableDirty = false;
         }
-        return util;
+        return this.utilityTable;
     }
 
     /**
-     * Set the weights of the issues based on the frequency
+     * Set the weights of the issues based on the (decayed) frequency.
+     * The weight of an issue is the sum of its squared value frequencies, normalised over all issues,
+     * and a value is evaluated as its frequency divided by the highest frequency of the issue.
      */
     public void setWeightValues() {
 
-        HashMap<ValueDiscrete, Double> frequencyValues = this.getWeightFreqAnalysis();
-
-        int turns = this.historyBid.size(); // number of turns based on the size of the history
-        double[] weightValues = new double[this.issueTotal]; // weight
-        double weightValueTotal = 0.0; // Total weight
-
-        for (int i = 0; i < this.issueTotal; i++) {
-
-            // Get the frequency of the issues
-            for (ValueDiscrete val : frequencyValues.keySet()) {
-                try {
-                    double freq = frequencyValues.get(val);
-
-                    double weight = Math.pow(freq, 2);
-                    weight = weight / Math.pow(turns, 2);
+        long startTime = this.metrics == null ? 0L : this.metrics.startTime();
+        long startAllocation = this.metrics == null ? 0L : this.metrics.startAllocation();
 
-                    weightValues[i] +=  weight;
+        for (int i = 0; i < this.issueTotal; i++) { this.issueWeight[i] = this.history.getConcentration(i); }
+        this.utilityTableDirty = true;
 
-                } catch (Exception error) { System.out.println(error.getMessage()); }
-            }
-            // Add weight value to the total weights
-            weightValueTotal += weightValues[i];
-        }
-        // Normalised weight by dividing the weight value by the total weight value
-        for (int i = 0; i < this.issueTotal; i++) {
-            this.issuesList[i].setWeight(weightValues[i] / weightValueTotal); // set weight to normalised weights
-        }
+        if (this.metrics != null)
+            this.metrics.record(AgentMetrics.Phase.SET_WEIGHT_VALUES, startTime, startAllocation);
     }
 
 
     /**
      * Add opponent's bid to its bid history
      */
-    public void addBid(Bid bid) {
+    public void addBid(Bid bid) { addBid(this.encoder.encode(bid), Double.NaN); }
 
-        this.historyBid.add(new BidDetails(bid, 0));
+    /**
+     * Add opponent's bid to its bid history, when it is already encoded
+     *
+     * @param encodedBid The bid in encoded form
+     * @param utility Our utility of the bid, or NaN when unknown
+     */
+    public synchronized void addBid(int[] encodedBid, double utility) {
+
+        this.history.add(encodedBid, utility);
+        this.hardheadednessTracker.add(encodedBid);
         this.setWeightValues();
     }
 
     /**
-     * Append the utility history list to include the last utility
-     * bid from the opponent.
-     *
-     * @param lastBidUtil
+     * @return whether the model estimates anything yet: a bid was received, or a prior was given
      */
-    public void addUtilityHistory(double lastBidUtil) { this.historyUtility.add(lastBidUtil); }
+    public synchronized boolean hasEstimate() { return this.prior != null || this.hardheadednessTracker.getBidCount() > 0; }
 
     /**
-     * @param turns The number of rounds to be used
+     * @return the number of bids received
+     */
+    public synchronized long getBidCount() { return this.hardheadednessTracker.getBidCount(); }
+
+    /**
+     * @param turns The number of rounds to be used, at most MAX_HARDHEADEDNESS_WINDOW
      * @return return range 0-1 on how stubborn an agent is
      * 1 - no updates in bids
      * 0 - all bids updated
+     * or null while fewer bids than the number of turns were received
      */
-    public Double hardheaded(int turns)
+    public synchronized Double hardheaded(int turns)
     {
         // history size needs to be smaller than the given number of turns
-        if (this.historyBid.size() < turns) { return null; }
-
-        // get the frequency update of the issue values.
-        int[] freqUpdate = this.getValueUpdateFrequency(turns);
-
-        int totalUpdates = 0;
-        for (int count: freqUpdate){ totalUpdates += count; }
+        if (this.hardheadednessTracker.getBidCount() < turns) { return null; }
 
-        double hardhead = 1 - (totalUpdates / (double) this.issueTotal) / (double)turns;
+        return this.hardheadednessTracker.getHardheadedness(turns);
+    }
 
-        return hardhead;
+    /**
+     * The number of times the value of each issue changed within the given number of turns.
+     *
+     * @param turns The number of rounds to be used, at most MAX_HARDHEADEDNESS_WINDOW and the number of bids received
+     * @param changes The array receiving the number of changes of every issue
+     */
+    public synchronized void getValueUpdateFrequency(int turns, int[] changes) {
+        this.hardheadednessTracker.getValueUpdateFrequency(turns, changes);
     }
 }
@@ -0,0 +1,72 @@
+package group1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Snapshot of the utility tables of all opponents, scoring a bid by the product of their utilities:
+ * the opponents' factor of the N-party Nash product. Bids are scored in encoded form, so every
+ * opponent reads the same int[] and a party adds one table lookup per issue. Without opponents the
+ * product is 1, so that the Nash product falls back to our own utility.
+ * Like the tables, a snapshot is never modified; a new one is made when an opponent's table changes.
+ */
+public class OpponentUtilities {
+
+    private UtilityTable[] tables;
+
+    public OpponentUtilities(UtilityTable[] tables) {
+
+        this.tables = tables.clone();
+    }
+
+    /**
+     * Take a snapshot of the current tables of the opponent models. Models without an estimate yet
+     * (an opponent that only accepted so far) are left out, as their table would zero every product.
+     *
+     * @param opponentModels The models of all opponents
+     * @param previous The previous snapshot, or null
+     * @return the previous snapshot when no table changed since, a new snapshot otherwise
+     */
+    public static OpponentUtilities of(Collection<OpponentModel> opponentModels, OpponentUtilities previous) {
+
+        List<UtilityTable> tables = new ArrayList<UtilityTable>(opponentModels.size());
+
+        for (OpponentModel opponentModel : opponentModels) {
+            if (opponentModel.hasEstimate())
+                tables.add(opponentModel.getUtilityTable());
+        }
+
+        boolean changed = previous == null || tables.size() != previous.tables.length;
+
+        for (int k = 0; k < tables.size() && !changed; k++) {
+            changed = tables.get(k) != previous.tables[k];
+        }
+
+        return changed ? new OpponentUtilities(tables.toArray(new UtilityTable[tables.size()])) : previous;
+    }
+
+    /**
+     * @return the number of opponents
+     */
+    public int size() { return this.tables.length; }
+
+    /**
+     * @return the utility table of an opponent
+     */
+    public UtilityTable getTable(int opponent) { return this.tables[opponent]; }
+
+    /**
+     * @param bid The encoded bid
+     * @return the product of the opponents' utilities of the bid
+     */
+    public double getUtility(int[] bid) {
+
+        double product = 1.0;
+
+        for (UtilityTable table : this.tables) {
+            product *= table.getUtility(bid);
+        }
+        return product;
+    }
+}
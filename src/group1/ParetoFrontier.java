@@ -0,0 +1,334 @@
+package group1;
+
+import java.util.Arrays;
+
+/**
+ * Approximate Pareto frontier between our utility and the opponents' estimated utility (the product
+ * of their utilities, so that our utility times it is the N-party Nash product), built from the bids
+ * added to it.
+ *
+ * The frontier is kept sorted by our utility in ascending order, so the opponent utility descends
+ * along it; of bids with the same utility to us only the best for the opponents is kept. A bid is therefore dominated exactly when its successor in that order has at least its
+ * opponent utility, and the bids it dominates form a run just before its position, so an insertion
+ * takes a binary search and a shift. The best Nash product of every suffix is cached, which answers
+ * "the best bid with our utility above a target" with a binary search.
+ *
+ * When the opponent model changes, only the opponent utilities of the bids held are recomputed and
+ * the bids that became dominated are swept out in one pass; the order by our utility still holds, so
+ * nothing is sorted or sampled again. The frontier holds at most a fixed number of bids: beyond it the
+ * bid in the densest stretch of our utility is dropped, keeping the frontier spread out.
+ */
+public class ParetoFrontier {
+
+    private static final double EPSILON = 1e-12; // tolerance for rounding in the target comparison
+
+    private int capacity;
+    private int issueCount;
+    private int size;
+    private double[] utilities; // our utility of every bid, ascending
+    private double[] opponentUtilities; // the opponents' utility of every bid, descending
+    private int[] bids; // bid of position p at p * issueCount .. (p + 1) * issueCount
+
+    private int[] suffixBestPosition; // position of the highest Nash product among the positions p and above
+    private boolean suffixDirty; // whether the suffix arrays are out of date
+
+    private UtilityTable utilityTable;
+    private OpponentUtilities opponentUtilityTables;
+
+    public ParetoFrontier(int capacity, int issueCount) {
+
+        if (capacity < 2)
+            throw new IllegalArgumentException("Capacity must be at least 2: " + capacity);
+
+        this.capacity = capacity;
+        this.issueCount = issueCount;
+        // One spare position, as an insertion is made before the frontier is thinned
+        this.utilities = new double[capacity + 1];
+        this.opponentUtilities = new double[capacity + 1];
+        this.bids = new int[(capacity + 1) * issueCount];
+        this.suffixBestPosition = new int[capacity + 1];
+    }
+
+    /**
+     * @return the number of bids on the frontier
+     */
+    public int size() { return this.size; }
+
+    /**
+     * @return our utility of the bid at a position, in ascending order
+     */
+    public double getUtility(int position) { return this.utilities[position]; }
+
+    /**
+     * @return the opponents' utility of the bid at a position, in descending order
+     */
+    public double getOpponentUtility(int position) { return this.opponentUtilities[position]; }
+
+    /**
+     * Score the frontier with the current utility tables, repairing it when one of them changed.
+     * New opponent tables cost one pass over the frontier; a new table of our own also re-sorts it.
+     * Tables are compared by identity, as they are replaced rather than modified.
+     *
+     * @param utilityTable Our utility table
+     * @param opponentUtilityTables The (snapshot) utility tables of the opponent models
+     */
+    public void setUtilityTables(UtilityTable utilityTable, OpponentUtilities opponentUtilityTables) {
+
+        boolean utilityTableChanged = utilityTable != this.utilityTable;
+        boolean opponentUtilityTableChanged = opponentUtilityTables != this.opponentUtilityTables;
+
+        this.utilityTable = utilityTable;
+        this.opponentUtilityTables = opponentUtilityTables;
+
+        if (this.size == 0 || !(utilityTableChanged || opponentUtilityTableChanged))
+            return;
+
+        int[] bid = new int[this.issueCount];
+
+        for (int p = 0; p < this.size; p++) {
+            System.arraycopy(this.bids, p * this.issueCount, bid, 0, this.issueCount);
+            if (utilityTableChanged) { this.utilities[p] = utilityTable.getUtility(bid); }
+            this.opponentUtilities[p] = opponentUtilityTables.getUtility(bid);
+        }
+
+        if (utilityTableChanged)
+            sortByUtility();
+
+        removeDominated();
+    }
+
+    /**
+     * Add a bid, unless a bid on the frontier dominates it; the bids it dominates are removed.
+     *
+     * @param bid The encoded bid, which is copied
+     * @return whether the bid is now on the frontier
+     */
+    public boolean add(int[] bid) {
+
+        return add(bid, this.utilityTable.getUtility(bid), this.opponentUtilityTables.getUtility(bid));
+    }
+
+    /**
+     * Add every bid that differs from the given bid in the value of one issue. Moving a bid towards
+     * the frontier this way is cheap, as the utilities of a neighbour follow from those of the bid:
+     * one lookup per opponent rather than one per opponent and issue.
+     *
+     * @param bid The encoded bid, which is left unchanged
+     */
+    public void addNeighbours(int[] bid) {
+
+        BidEncoder encoder = this.utilityTable.getEncoder();
+        int opponentCount = this.opponentUtilityTables.size();
+        double utility = this.utilityTable.getUtility(bid);
+        double[] opponentUtilities = new double[opponentCount];
+        double[] otherOpponentUtilities = new double[opponentCount];
+        int[] neighbour = Arrays.copyOf(bid, bid.length);
+
+        for (int k = 0; k < opponentCount; k++) { opponentUtilities[k] = this.opponentUtilityTables.getTable(k).getUtility(bid); }
+
+        for (int i = 0; i < this.issueCount; i++) {
+            double otherUtility = utility - this.utilityTable.get(i, bid[i]);
+
+            for (int k = 0; k < opponentCount; k++) {
+                otherOpponentUtilities[k] = opponentUtilities[k] - this.opponentUtilityTables.getTable(k).get(i, bid[i]);
+            }
+
+            for (int j = 0; j < encoder.getValueCount(i); j++) {
+                if (j == bid[i])
+                    continue;
+
+                double opponentUtility = 1.0;
+                for (int k = 0; k < opponentCount; k++) {
+                    opponentUtility *= otherOpponentUtilities[k] + this.opponentUtilityTables.getTable(k).get(i, j);
+                }
+
+                neighbour[i] = j;
+                add(neighbour, otherUtility + this.utilityTable.get(i, j), opponentUtility);
+            }
+            neighbour[i] = bid[i];
+        }
+    }
+
+    /**
+     * Find the bid with the highest Nash product among those with at least the target utility.
+     *
+     * @param targetUtility The lowest utility the bid may have
+     * @param bid The array receiving the encoded bid
+     * @return whether the frontier holds a bid with at least the target utility
+     */
+    public boolean getBestAbove(double targetUtility, int[] bid) {
+
+        int position = lowerBound(targetUtility - EPSILON);
+
+        if (position == this.size)
+            return false;
+
+        if (this.suffixDirty)
+            rebuildSuffix();
+
+        System.arraycopy(this.bids, this.suffixBestPosition[position] * this.issueCount, bid, 0, this.issueCount);
+        return true;
+    }
+
+    private boolean add(int[] bid, double utility, double opponentUtility) {
+
+        int position = upperBound(utility); // first position with a higher utility of ours
+
+        // Dominated by the next bid, or by an earlier bid of equal utility to us
+        if (position < this.size && this.opponentUtilities[position] >= opponentUtility)
+            return false;
+        if (position > 0 && this.utilities[position - 1] == utility && this.opponentUtilities[position - 1] >= opponentUtility)
+            return false;
+
+        // The bids it dominates have a lower utility to us and at most its utility to the opponent
+        int start = position;
+        while (start > 0 && this.opponentUtilities[start - 1] <= opponentUtility) { start--; }
+
+        // Replace the run start .. position - 1 by the new bid
+        int shift = 1 - (position - start);
+        move(position, position + shift, this.size - position);
+        this.size += shift;
+
+        this.utilities[start] = utility;
+        this.opponentUtilities[start] = opponentUtility;
+        System.arraycopy(bid, 0, this.bids, start * this.issueCount, this.issueCount);
+
+        if (this.size > this.capacity)
+            removeDensest();
+
+        this.suffixDirty = true;
+        return true;
+    }
+
+    /**
+     * Remove the inner bid whose neighbours are closest together in our utility.
+     */
+    private void removeDensest() {
+
+        int densest = 1;
+
+        for (int p = 2; p < this.size - 1; p++) {
+            if (this.utilities[p + 1] - this.utilities[p - 1] < this.utilities[densest + 1] - this.utilities[densest - 1])
+                densest = p;
+        }
+
+        move(densest + 1, densest, this.size - densest - 1);
+        this.size--;
+    }
+
+    /**
+     * Keep only the bids that no bid of at least their utility to us matches in opponent utility,
+     * sweeping from the highest utility down and compacting in place.
+     */
+    private void removeDominated() {
+
+        int kept = 0;
+        double bestOpponentUtility = Double.NEGATIVE_INFINITY;
+
+        // Sweep downwards, writing the kept bids to the top end first
+        for (int p = this.size - 1; p >= 0; p--) {
+            if (this.opponentUtilities[p] <= bestOpponentUtility)
+                continue;
+
+            bestOpponentUtility = this.opponentUtilities[p];
+
+            // A bid of the same utility to us as the last kept one, but better for the opponents, replaces it
+            if (kept == 0 || this.utilities[p] != this.utilities[this.size - kept])
+                kept++;
+
+            copy(p, this.size - kept);
+        }
+
+        move(this.size - kept, 0, kept);
+        this.size = kept;
+        this.suffixDirty = true;
+    }
+
+    /**
+     * Restore the ascending order of our utility after our utility table changed; bids of equal
+     * utility to us are ordered by descending opponent utility, as along the frontier.
+     */
+    private void sortByUtility() {
+
+        Integer[] order = new Integer[this.size];
+        for (int p = 0; p < this.size; p++) { order[p] = p; }
+        Arrays.sort(order, (a, b) -> this.utilities[a] != this.utilities[b]
+                ? Double.compare(this.utilities[a], this.utilities[b])
+                : Double.compare(this.opponentUtilities[b], this.opponentUtilities[a]));
+
+        double[] utilities = Arrays.copyOf(this.utilities, this.size);
+        double[] opponentUtilities = Arrays.copyOf(this.opponentUtilities, this.size);
+        int[] bids = Arrays.copyOf(this.bids, this.size * this.issueCount);
+
+        for (int p = 0; p < this.size; p++) {
+            this.utilities[p] = utilities[order[p]];
+            this.opponentUtilities[p] = opponentUtilities[order[p]];
+            System.arraycopy(bids, order[p] * this.issueCount, this.bids, p * this.issueCount, this.issueCount);
+        }
+    }
+
+    private void rebuildSuffix() {
+
+        double best = Double.NEGATIVE_INFINITY;
+        int bestPosition = -1;
+
+        for (int p = this.size - 1; p >= 0; p--) {
+            double nashProduct = this.utilities[p] * this.opponentUtilities[p];
+
+            if (nashProduct > best) {
+                best = nashProduct;
+                bestPosition = p;
+            }
+            this.suffixBestPosition[p] = bestPosition;
+        }
+        this.suffixDirty = false;
+    }
+
+    /**
+     * Move a range of positions, which may overlap with its destination.
+     */
+    private void move(int from, int to, int length) {
+
+        System.arraycopy(this.utilities, from, this.utilities, to, length);
+        System.arraycopy(this.opponentUtilities, from, this.opponentUtilities, to, length);
+        System.arraycopy(this.bids, from * this.issueCount, this.bids, to * this.issueCount, length * this.issueCount);
+    }
+
+    private void copy(int from, int to) {
+
+        if (from != to)
+            move(from, to, 1);
+    }
+
+    /**
+     * @return the first position whose utility is at least the key
+     */
+    private int lowerBound(double key) {
+
+        int low = 0;
+        int high = this.size;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.utilities[middle] < key) { low = middle + 1; }
+            else { high = middle; }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first position whose utility is above the key
+     */
+    private int upperBound(double key) {
+
+        int low = 0;
+        int high = this.size;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.utilities[middle] <= key) { low = middle + 1; }
+            else { high = middle; }
+        }
+        return low;
+    }
+}
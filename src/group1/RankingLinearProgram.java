@@ -0,0 +1,212 @@
+package group1;
+
+import genius.core.Bid;
+import genius.core.uncertainty.BidRanking;
+import genius.core.uncertainty.OutcomeComparison;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Sparse form of the linear program used to estimate a utility space from a bid ranking.
+ *
+ * There is one variable per value of every issue (indexed like a flat UtilityTable) and one
+ * slack variable per pairwise comparison. Every comparison of a lower and a higher bid gives the row
+ *   sum(higher values) - sum(lower values) + slack >= 0
+ * which only has non-zeros for the issues on which the two bids differ, so rows are stored sparsely.
+ * The objective minimises the sum of the slacks, all variables are non-negative (a bound, not a row),
+ * and two equality rows pin the utilities of the maximal and minimal bid of the ranking.
+ *
+ * A program can be extended when the ranking grows: only comparisons it does not hold yet are added,
+ * so a solver can continue from its previous solution instead of starting over.
+ */
+public class RankingLinearProgram {
+
+    private BidEncoder encoder;
+
+    private int comparisonCount; // number of comparison rows (and slack variables)
+    private int[] rowStart; // rowStart[j] .. rowStart[j + 1] is the range of row j in columns/coefficients
+    private int[] columns; // value variable of every non-zero
+    private double[] coefficients; // coefficient of every non-zero
+    private int nonZeroCount;
+
+    private int[] maximalBid; // encoded maximal bid of the ranking
+    private int[] minimalBid; // encoded minimal bid of the ranking
+    private double highUtility; // utility the maximal bid is pinned to
+    private double lowUtility; // utility the minimal bid is pinned to
+    private int boundsVersion; // incremented whenever the maximal or minimal bid changes
+
+    private Set<String> comparisonKeys; // the (lower, higher) pairs already added
+
+    public RankingLinearProgram(BidEncoder encoder) {
+
+        this.encoder = encoder;
+        this.rowStart = new int[16];
+        this.columns = new int[64];
+        this.coefficients = new double[64];
+        this.comparisonKeys = new HashSet<String>();
+    }
+
+    /**
+     * Build the program by streaming the pairwise comparisons of a ranking.
+     *
+     * @param encoder The encoder of the domain of the ranking
+     * @param bidRanking The ranking of bids, from low to high
+     * @return the program for the ranking
+     */
+    public static RankingLinearProgram fromBidRanking(BidEncoder encoder, BidRanking bidRanking) {
+
+        RankingLinearProgram program = new RankingLinearProgram(encoder);
+        program.addComparisons(bidRanking);
+        return program;
+    }
+
+    /**
+     * Extend the program with a (grown) ranking: add the comparisons that are new and update the
+     * maximal and minimal bid. Comparisons that are no longer adjacent in the ranking are kept,
+     * as they are still implied by it.
+     *
+     * @param bidRanking The ranking of bids, from low to high
+     * @return the number of comparisons added
+     */
+    public int addComparisons(BidRanking bidRanking) {
+
+        int previousCount = this.comparisonCount;
+        int[] lowerBid = new int[this.encoder.getIssueCount()];
+        int[] higherBid = new int[this.encoder.getIssueCount()];
+
+        for (OutcomeComparison outcomeComparison : bidRanking.getPairwiseComparisons()) {
+            this.encoder.encode(outcomeComparison.getBid1(), lowerBid);
+            this.encoder.encode(outcomeComparison.getBid2(), higherBid);
+            addComparison(lowerBid, higherBid);
+        }
+
+        setBounds(bidRanking.getMaximalBid(), bidRanking.getHighUtility(),
+                bidRanking.getMinimalBid(), bidRanking.getLowUtility());
+        return this.comparisonCount - previousCount;
+    }
+
+    /**
+     * Add the row stating that the higher bid has at least the utility of the lower bid,
+     * unless the program already holds it.
+     *
+     * @param lowerBid The encoded bid ranked lower
+     * @param higherBid The encoded bid ranked higher
+     */
+    public void addComparison(int[] lowerBid, int[] higherBid) {
+
+        if (!this.comparisonKeys.add(Arrays.toString(lowerBid) + "<" + Arrays.toString(higherBid)))
+            return;
+
+        ensureCapacity(this.nonZeroCount + 2 * lowerBid.length);
+
+        for (int i = 0; i < lowerBid.length; i++) {
+            if (lowerBid[i] != higherBid[i]) {
+                addNonZero(this.encoder.getOffset(i) + lowerBid[i], -1.0D);
+                addNonZero(this.encoder.getOffset(i) + higherBid[i], 1.0D);
+            }
+        }
+
+        if (this.comparisonCount + 2 > this.rowStart.length)
+            this.rowStart = Arrays.copyOf(this.rowStart, 2 * this.rowStart.length);
+
+        this.comparisonCount++;
+        this.rowStart[this.comparisonCount] = this.nonZeroCount;
+    }
+
+    /**
+     * Pin the utilities of the maximal and minimal bid of the ranking.
+     */
+    public void setBounds(Bid maximalBid, double highUtility, Bid minimalBid, double lowUtility) {
+
+        int[] encodedMaximalBid = this.encoder.encode(maximalBid);
+        int[] encodedMinimalBid = this.encoder.encode(minimalBid);
+
+        if (Arrays.equals(encodedMaximalBid, this.maximalBid) && Arrays.equals(encodedMinimalBid, this.minimalBid)
+                && highUtility == this.highUtility && lowUtility == this.lowUtility)
+            return;
+
+        this.maximalBid = encodedMaximalBid;
+        this.minimalBid = encodedMinimalBid;
+        this.highUtility = highUtility;
+        this.lowUtility = lowUtility;
+        this.boundsVersion++;
+    }
+
+    private void addNonZero(int column, double coefficient) {
+
+        this.columns[this.nonZeroCount] = column;
+        this.coefficients[this.nonZeroCount] = coefficient;
+        this.nonZeroCount++;
+    }
+
+    private void ensureCapacity(int capacity) {
+
+        if (capacity > this.columns.length) {
+            int length = Math.max(capacity, 2 * this.columns.length);
+            this.columns = Arrays.copyOf(this.columns, length);
+            this.coefficients = Arrays.copyOf(this.coefficients, length);
+        }
+    }
+
+    /**
+     * @return the encoder the value variables are indexed by
+     */
+    public BidEncoder getEncoder() { return this.encoder; }
+
+    /**
+     * @return the number of value variables
+     */
+    public int getVariableCount() { return this.encoder.getTotalValues(); }
+
+    /**
+     * @return the number of comparison rows, which is also the number of slack variables
+     */
+    public int getComparisonCount() { return this.comparisonCount; }
+
+    /**
+     * @return the index of the first non-zero of a comparison row
+     */
+    public int getRowStart(int comparison) { return this.rowStart[comparison]; }
+
+    /**
+     * @return the index after the last non-zero of a comparison row
+     */
+    public int getRowEnd(int comparison) { return this.rowStart[comparison + 1]; }
+
+    /**
+     * @return the value variable of a non-zero
+     */
+    public int getColumn(int nonZero) { return this.columns[nonZero]; }
+
+    /**
+     * @return the coefficient of a non-zero
+     */
+    public double getCoefficient(int nonZero) { return this.coefficients[nonZero]; }
+
+    /**
+     * @return the encoded maximal bid of the ranking
+     */
+    public int[] getMaximalBid() { return this.maximalBid; }
+
+    /**
+     * @return the encoded minimal bid of the ranking
+     */
+    public int[] getMinimalBid() { return this.minimalBid; }
+
+    /**
+     * @return the utility the maximal bid is pinned to
+     */
+    public double getHighUtility() { return this.highUtility; }
+
+    /**
+     * @return the utility the minimal bid is pinned to
+     */
+    public double getLowUtility() { return this.lowUtility; }
+
+    /**
+     * @return a number that changes whenever the maximal or minimal bid (or their utility) changes
+     */
+    public int getBoundsVersion() { return this.boundsVersion; }
+}
@@ -0,0 +1,16 @@
+package group1;
+
+/**
+ * Backend solving the linear program that estimates a utility space from a bid ranking.
+ */
+public interface RankingSolver {
+
+    /**
+     * Minimise the total slack of the ranking program.
+     *
+     * @param problem The program built from the bid ranking
+     * @return the optimal value of every value variable, indexed like a flat UtilityTable
+     * @throws Exception when the program cannot be solved
+     */
+    double[] solve(RankingLinearProgram problem) throws Exception;
+}
@@ -0,0 +1,44 @@
+package group1;
+
+/**
+ * Batch evaluator in plain Java. It adds up the scores column by column: for every issue the
+ * candidates' value indices are looked up in that issue's part of the table. Each inner loop
+ * reads one column and one small table, which suits the cache better than a loop per bid.
+ */
+public class ScalarBatchEvaluator implements BatchEvaluator {
+
+    @Override
+    public void evaluate(CandidatePool pool, UtilityTable utilityTable, OpponentUtilities opponentUtilities,
+                         double[] utilities, double[] opponentUtilityProducts, double[] nashProducts) {
+
+        int size = pool.size();
+
+        sum(pool, utilityTable, utilities);
+
+        for (int c = 0; c < size; c++) { opponentUtilityProducts[c] = 1.0; }
+
+        // The Nash products hold the utilities of one opponent at a time before they are final
+        for (int k = 0; k < opponentUtilities.size(); k++) {
+            sum(pool, opponentUtilities.getTable(k), nashProducts);
+            for (int c = 0; c < size; c++) { opponentUtilityProducts[c] *= nashProducts[c]; }
+        }
+
+        for (int c = 0; c < size; c++) { nashProducts[c] = utilities[c] * opponentUtilityProducts[c]; }
+    }
+
+    private static void sum(CandidatePool pool, UtilityTable table, double[] sums) {
+
+        BidEncoder encoder = table.getEncoder();
+        double[] values = table.getValues();
+        int size = pool.size();
+
+        for (int c = 0; c < size; c++) { sums[c] = 0.0; }
+
+        for (int i = 0; i < pool.getIssueCount(); i++) {
+            int[] column = pool.getColumn(i);
+            int offset = encoder.getOffset(i);
+
+            for (int c = 0; c < size; c++) { sums[c] += values[offset + column[c]]; }
+        }
+    }
+}
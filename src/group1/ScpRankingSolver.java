@@ -0,0 +1,59 @@
+package group1;
+
+import scpsolver.constraints.LinearBiggerThanEqualsConstraint;
+import scpsolver.constraints.LinearEqualsConstraint;
+import scpsolver.lpsolver.LinearProgramSolver;
+import scpsolver.lpsolver.SolverFactory;
+import scpsolver.problems.LinearProgram;
+
+import java.util.Arrays;
+
+/**
+ * Solves the ranking program with SCPSolver, which loads the native GLPK or LPSOLVE solver pack.
+ */
+public class ScpRankingSolver implements RankingSolver {
+
+    /**
+     * Hand the sparse program to SCPSolver. SCPSolver only takes dense constraint rows, so each
+     * comparison row is expanded on its own right before it is added. Non-negativity is passed as
+     * variable bounds rather than as one constraint row per variable.
+     */
+    @Override
+    public double[] solve(RankingLinearProgram problem) {
+        BidEncoder encoder = problem.getEncoder();
+        int num_variables = problem.getVariableCount();
+        int num_components = problem.getComparisonCount();
+        double[] objective = new double[num_variables + num_components];
+
+        for (int i = 0; i < num_components; i++){
+            objective[num_variables + i] = 1.0D;
+        }
+
+        LinearProgram linearProgram = new LinearProgram(objective);
+
+        for (int i = 0; i < num_components; i++){
+            double[] row = new double[num_variables + num_components];
+
+            for (int j = problem.getRowStart(i); j < problem.getRowEnd(i); j++){
+                row[problem.getColumn(j)] = problem.getCoefficient(j);
+            }
+            row[num_variables + i] = 1.0D;
+            linearProgram.addConstraint(new LinearBiggerThanEqualsConstraint(row, 0.0D, "c" + i));
+        }
+
+        double[] maximal_row = new double[num_variables + num_components];
+        double[] minimal_row = new double[num_variables + num_components];
+
+        for (int i = 0; i < encoder.getIssueCount(); i++){
+            maximal_row[encoder.getOffset(i) + problem.getMaximalBid()[i]] = 1.0D;
+            minimal_row[encoder.getOffset(i) + problem.getMinimalBid()[i]] = 1.0D;
+        }
+
+        linearProgram.addConstraint(new LinearEqualsConstraint(maximal_row, problem.getHighUtility(), "c" + num_components));
+        linearProgram.addConstraint(new LinearEqualsConstraint(minimal_row, problem.getLowUtility(), "c" + (num_components + 1)));
+        linearProgram.setLowerbound(new double[num_variables + num_components]);
+        linearProgram.setMinProblem(true);
+        LinearProgramSolver solver  = SolverFactory.newDefault();
+        return Arrays.copyOf(solver.solve(linearProgram), num_variables);
+    }
+}
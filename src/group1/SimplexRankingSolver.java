@@ -0,0 +1,485 @@
+package group1;
+
+import java.util.Arrays;
+
+/**
+ * Pure-Java solver for the ranking program, so no native solver pack has to be loaded.
+ *
+ * Instead of the ranking program itself it solves the dual:
+ *   maximise   high * u + low * w
+ *   subject to sum_j y_j * row_j + u * maximalBid + w * minimalBid + z = 0   (one row per value variable)
+ *              0 <= y_j <= 1 for every comparison j, u and w free, z >= 0
+ * with a bounded-variable revised simplex. The dual has one row per value variable, so its basis
+ * stays values x values however long the ranking is; the comparison rows are read as sparse columns,
+ * and the slack basis (all z basic at zero) is feasible from the start, so no first phase is needed.
+ * The optimal value variables of the ranking program are the simplex multipliers of the final basis.
+ * Solving the same problem again after comparisons were added to it continues from the previous basis.
+ */
+public class SimplexRankingSolver implements RankingSolver {
+
+    private static final double TOLERANCE = 1e-9;
+    private static final double PIVOT_TOLERANCE = 1e-7; // smallest pivot element accepted in the ratio test
+    private static final int REFACTORISATION_FREQUENCY = 100; // pivots between recomputing the inverse
+    private static final int MAX_DEGENERATE_PIVOTS = 50; // degenerate pivots in a row before Bland's rule is used
+    private static final int PRICING_BLOCK_SIZE = 64; // minimal number of columns priced per iteration
+    private static final int INTERRUPT_CHECK_FREQUENCY = 16; // pivots between checks for a cancelled solve
+
+    private static final byte BASIC = 0;
+    private static final byte AT_LOWER = 1;
+    private static final byte AT_UPPER = 2;
+
+    private RankingLinearProgram problem;
+    private BidEncoder encoder;
+    private int rows; // one per value variable of the ranking program
+    private int comparisons; // one y column per comparison
+    private int columnCount; // one slack z per row, then u+, u-, w+, w-, then the comparisons
+    private int boundsVersion; // version of the problem's maximal and minimal bid the state was built for
+
+    private byte[] status; // BASIC, AT_LOWER or AT_UPPER for every column
+    private int[] basis; // the basic column of every row
+    private double[] basicValues; // the value of the basic column of every row
+    private double[][] inverse; // inverse of the basis matrix
+    private double[] multipliers; // simplex multipliers, i.e. the value variables of the ranking program
+    private int pricingStart; // column at which the next partial pricing starts
+
+    private int[] columnRows; // scratch: rows of the non-zeros of a column
+    private double[] columnValues; // scratch: values of the non-zeros of a column
+    private double[] alpha; // scratch: the entering column in terms of the basis
+
+    @Override
+    public double[] solve(RankingLinearProgram problem) throws Exception {
+
+        if (problem != this.problem || !warmStart())
+            initialise(problem);
+
+        try {
+            iterate();
+        } catch (Exception e) {
+            this.problem = null; // never warm start from a half-finished solve
+            throw e;
+        }
+
+        double[] solution = new double[this.rows];
+
+        for (int i = 0; i < this.rows; i++) {
+            solution[i] = Math.max(0.0, this.multipliers[i]);
+        }
+        return solution;
+    }
+
+    /**
+     * Start from the slack basis: every y, u and w at zero and every z basic at zero.
+     */
+    private void initialise(RankingLinearProgram problem) {
+
+        this.problem = problem;
+        this.encoder = problem.getEncoder();
+        this.rows = problem.getVariableCount();
+        this.comparisons = problem.getComparisonCount();
+        this.columnCount = this.rows + 4 + this.comparisons;
+        this.boundsVersion = problem.getBoundsVersion();
+
+        this.status = new byte[this.columnCount];
+        this.basis = new int[this.rows];
+        this.basicValues = new double[this.rows];
+        this.inverse = new double[this.rows][this.rows];
+        this.multipliers = new double[this.rows];
+        this.pricingStart = 0;
+
+        this.columnRows = new int[Math.max(1, 2 * this.encoder.getIssueCount())];
+        this.columnValues = new double[this.columnRows.length];
+        this.alpha = new double[this.rows];
+
+        Arrays.fill(this.status, AT_LOWER);
+
+        for (int i = 0; i < this.rows; i++) {
+            this.basis[i] = slackColumn(i);
+            this.status[slackColumn(i)] = BASIC;
+            this.inverse[i][i] = 1.0;
+        }
+    }
+
+    /**
+     * Continue from the optimal basis of the previous solve of the same problem. Comparisons added
+     * since then are new dual columns at their lower bound, so the old basis stays feasible and
+     * only the pivots needed to bring in the new comparisons are done. New maximal or minimal bids
+     * change the u and w columns, which is only possible while none of them is basic.
+     *
+     * @return whether the previous basis could be kept
+     */
+    private boolean warmStart() {
+
+        if (this.problem.getBoundsVersion() != this.boundsVersion) {
+            for (int column = this.rows; column < this.rows + 4; column++) {
+                if (this.status[column] == BASIC)
+                    return false;
+            }
+            this.boundsVersion = this.problem.getBoundsVersion();
+        }
+
+        int comparisons = this.problem.getComparisonCount();
+
+        if (comparisons < this.comparisons)
+            return false;
+
+        this.comparisons = comparisons;
+        this.columnCount = this.rows + 4 + comparisons;
+
+        if (this.status.length < this.columnCount) {
+            int previousLength = this.status.length;
+            this.status = Arrays.copyOf(this.status, Math.max(this.columnCount, 2 * previousLength));
+            Arrays.fill(this.status, previousLength, this.status.length, AT_LOWER);
+        }
+        return true;
+    }
+
+    /**
+     * Pivot until no column can improve the objective.
+     *
+     * @throws InterruptedException if the thread is interrupted, e.g. when the estimation is cancelled
+     */
+    private void iterate() throws Exception {
+
+        int maxIterations = 20 * this.columnCount + 1000;
+        int degeneratePivots = 0;
+
+        for (int iteration = 0; ; iteration++) {
+
+            if (iteration > maxIterations)
+                throw new IllegalStateException("Simplex did not converge in " + maxIterations + " iterations");
+
+            if (iteration % INTERRUPT_CHECK_FREQUENCY == 0 && Thread.interrupted())
+                throw new InterruptedException("Simplex solve cancelled after " + iteration + " iterations");
+
+            if (iteration > 0 && iteration % REFACTORISATION_FREQUENCY == 0)
+                refactorise();
+
+            computeMultipliers();
+
+            int entering = price(degeneratePivots > MAX_DEGENERATE_PIVOTS);
+
+            if (entering < 0)
+                return;
+
+            double step = pivot(entering, degeneratePivots > MAX_DEGENERATE_PIVOTS);
+            degeneratePivots = step < TOLERANCE ? degeneratePivots + 1 : 0;
+        }
+    }
+
+    /**
+     * Choose the entering column. Columns are priced in blocks, cyclically from where the last
+     * search stopped, taking the largest improving reduced cost of the first block that has one
+     * (partial Dantzig pricing). To break cycles on degenerate vertices, Bland's rule takes the
+     * first improving column instead.
+     *
+     * @return the entering column, or -1 if the basis is optimal
+     */
+    private int price(boolean bland) {
+
+        int entering = -1;
+        double best = TOLERANCE;
+        int start = bland ? 0 : this.pricingStart;
+        int blockSize = Math.max(PRICING_BLOCK_SIZE, this.columnCount / 10);
+
+        for (int scanned = 0; scanned < this.columnCount; scanned++) {
+            int column = (start + scanned) % this.columnCount;
+
+            if (!bland && entering >= 0 && scanned % blockSize == 0) {
+                this.pricingStart = column;
+                return entering;
+            }
+
+            if (this.status[column] == BASIC)
+                continue;
+
+            double reducedCost = cost(column) - multiply(this.multipliers, column);
+            double improvement = this.status[column] == AT_LOWER ? reducedCost : -reducedCost;
+
+            if (improvement > best) {
+                entering = column;
+                best = improvement;
+
+                if (bland)
+                    return entering;
+            }
+        }
+        return entering;
+    }
+
+    /**
+     * Move the entering column as far as the bounds of the basic columns (or its own bound) allow.
+     *
+     * @return the length of the step taken
+     */
+    private double pivot(int entering, boolean bland) {
+
+        double direction = this.status[entering] == AT_LOWER ? 1.0 : -1.0;
+        computeAlpha(entering);
+
+        // Ratio test; an entering y column may also just flip to its other bound
+        double step = upperBound(entering);
+        int leaving = -1;
+        boolean leavingToUpper = false;
+
+        for (int r = 0; r < this.rows; r++) {
+            double change = -direction * this.alpha[r]; // rate at which the basic value moves
+            double limit;
+            boolean toUpper;
+
+            if (change < -PIVOT_TOLERANCE) {
+                limit = Math.max(0.0, this.basicValues[r]) / -change;
+                toUpper = false;
+            } else if (change > PIVOT_TOLERANCE && upperBound(this.basis[r]) < Double.POSITIVE_INFINITY) {
+                limit = Math.max(0.0, upperBound(this.basis[r]) - this.basicValues[r]) / change;
+                toUpper = true;
+            } else {
+                continue;
+            }
+
+            boolean better = limit < step - TOLERANCE;
+            boolean tie = !better && limit <= step + TOLERANCE && leaving >= 0;
+
+            if (tie) {
+                // Prefer the first basic column under Bland's rule, the largest pivot element otherwise
+                better = bland ? this.basis[r] < this.basis[leaving] : Math.abs(this.alpha[r]) > Math.abs(this.alpha[leaving]);
+            }
+
+            if (better) {
+                step = limit;
+                leaving = r;
+                leavingToUpper = toUpper;
+            }
+        }
+
+        if (step == Double.POSITIVE_INFINITY)
+            throw new IllegalStateException("The ranking program is infeasible");
+
+        for (int r = 0; r < this.rows; r++) {
+            this.basicValues[r] -= direction * this.alpha[r] * step;
+        }
+
+        if (leaving < 0) {
+            this.status[entering] = this.status[entering] == AT_LOWER ? AT_UPPER : AT_LOWER;
+            return step;
+        }
+
+        double enteringValue = (this.status[entering] == AT_LOWER ? 0.0 : upperBound(entering)) + direction * step;
+        this.status[this.basis[leaving]] = leavingToUpper ? AT_UPPER : AT_LOWER;
+        this.status[entering] = BASIC;
+        this.basis[leaving] = entering;
+        this.basicValues[leaving] = enteringValue;
+
+        // Update the inverse: divide the pivot row, eliminate the entering column from the others
+        double[] pivotRow = this.inverse[leaving];
+        double pivotElement = this.alpha[leaving];
+
+        for (int c = 0; c < this.rows; c++) {
+            pivotRow[c] /= pivotElement;
+        }
+
+        for (int r = 0; r < this.rows; r++) {
+            double factor = this.alpha[r];
+
+            if (r == leaving || factor == 0.0)
+                continue;
+
+            double[] row = this.inverse[r];
+
+            for (int c = 0; c < this.rows; c++) {
+                row[c] -= factor * pivotRow[c];
+            }
+        }
+        return step;
+    }
+
+    /**
+     * Recompute the inverse from the basic columns (Gauss-Jordan with partial pivoting) and the
+     * basic values from the non-basic columns at their upper bound, to stop rounding errors piling up.
+     */
+    private void refactorise() {
+
+        double[][] matrix = new double[this.rows][2 * this.rows];
+
+        for (int r = 0; r < this.rows; r++) {
+            int count = loadColumn(this.basis[r]);
+
+            for (int k = 0; k < count; k++) {
+                matrix[this.columnRows[k]][r] += this.columnValues[k];
+            }
+            matrix[r][this.rows + r] = 1.0;
+        }
+
+        for (int c = 0; c < this.rows; c++) {
+            int pivot = c;
+
+            for (int r = c + 1; r < this.rows; r++) {
+                if (Math.abs(matrix[r][c]) > Math.abs(matrix[pivot][c]))
+                    pivot = r;
+            }
+
+            if (Math.abs(matrix[pivot][c]) < TOLERANCE)
+                throw new IllegalStateException("Singular basis");
+
+            double[] swap = matrix[pivot];
+            matrix[pivot] = matrix[c];
+            matrix[c] = swap;
+
+            double pivotElement = matrix[c][c];
+
+            for (int k = 0; k < 2 * this.rows; k++) {
+                matrix[c][k] /= pivotElement;
+            }
+
+            for (int r = 0; r < this.rows; r++) {
+                double factor = matrix[r][c];
+
+                if (r == c || factor == 0.0)
+                    continue;
+
+                for (int k = 0; k < 2 * this.rows; k++) {
+                    matrix[r][k] -= factor * matrix[c][k];
+                }
+            }
+        }
+
+        for (int r = 0; r < this.rows; r++) {
+            System.arraycopy(matrix[r], this.rows, this.inverse[r], 0, this.rows);
+        }
+
+        // basicValues = inverse * (0 - sum of the columns at their upper bound)
+        double[] rightHandSide = new double[this.rows];
+
+        for (int column = 0; column < this.columnCount; column++) {
+            if (this.status[column] != AT_UPPER)
+                continue;
+
+            int count = loadColumn(column);
+
+            for (int k = 0; k < count; k++) {
+                rightHandSide[this.columnRows[k]] -= this.columnValues[k] * upperBound(column);
+            }
+        }
+
+        for (int r = 0; r < this.rows; r++) {
+            double value = 0.0;
+
+            for (int c = 0; c < this.rows; c++) {
+                value += this.inverse[r][c] * rightHandSide[c];
+            }
+            this.basicValues[r] = value;
+        }
+    }
+
+    /**
+     * multipliers = cost of the basic columns times the inverse. Only u and w have a non-zero cost,
+     * so at most two rows of the inverse contribute.
+     */
+    private void computeMultipliers() {
+
+        Arrays.fill(this.multipliers, 0.0);
+
+        for (int r = 0; r < this.rows; r++) {
+            double basicCost = cost(this.basis[r]);
+
+            if (basicCost == 0.0)
+                continue;
+
+            double[] row = this.inverse[r];
+
+            for (int c = 0; c < this.rows; c++) {
+                this.multipliers[c] += basicCost * row[c];
+            }
+        }
+    }
+
+    /**
+     * alpha = inverse times the entering column.
+     */
+    private void computeAlpha(int entering) {
+
+        int count = loadColumn(entering);
+
+        for (int r = 0; r < this.rows; r++) {
+            double[] row = this.inverse[r];
+            double value = 0.0;
+
+            for (int k = 0; k < count; k++) {
+                value += row[this.columnRows[k]] * this.columnValues[k];
+            }
+            this.alpha[r] = value;
+        }
+    }
+
+    /**
+     * @return the dot product of a row vector with a column
+     */
+    private double multiply(double[] vector, int column) {
+
+        int count = loadColumn(column);
+        double value = 0.0;
+
+        for (int k = 0; k < count; k++) {
+            value += vector[this.columnRows[k]] * this.columnValues[k];
+        }
+        return value;
+    }
+
+    /**
+     * Load the non-zeros of a column into columnRows and columnValues.
+     *
+     * @return the number of non-zeros
+     */
+    private int loadColumn(int column) {
+
+        if (column < this.rows) {
+            this.columnRows[0] = column;
+            this.columnValues[0] = 1.0;
+            return 1;
+        }
+
+        if (column < this.rows + 4) {
+            int which = column - this.rows;
+            int[] bid = which < 2 ? this.problem.getMaximalBid() : this.problem.getMinimalBid();
+            double sign = which % 2 == 0 ? 1.0 : -1.0;
+
+            for (int i = 0; i < bid.length; i++) {
+                this.columnRows[i] = this.encoder.getOffset(i) + bid[i];
+                this.columnValues[i] = sign;
+            }
+            return bid.length;
+        }
+
+        int comparison = column - this.rows - 4;
+        int count = 0;
+
+        for (int k = this.problem.getRowStart(comparison); k < this.problem.getRowEnd(comparison); k++) {
+            this.columnRows[count] = this.problem.getColumn(k);
+            this.columnValues[count] = this.problem.getCoefficient(k);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the objective coefficient of a column
+     */
+    private double cost(int column) {
+
+        if (column < this.rows || column >= this.rows + 4)
+            return 0.0;
+
+        switch (column - this.rows) {
+            case 0: return this.problem.getHighUtility();
+            case 1: return -this.problem.getHighUtility();
+            case 2: return this.problem.getLowUtility();
+            default: return -this.problem.getLowUtility();
+        }
+    }
+
+    /**
+     * @return the upper bound of a column; only the comparison columns are bounded
+     */
+    private double upperBound(int column) { return column >= this.rows + 4 ? 1.0 : Double.POSITIVE_INFINITY; }
+
+    private int slackColumn(int row) { return row; }
+}
@@ -0,0 +1,290 @@
+package group1;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * The tunable constants of the agent's strategy. The defaults are the values the agent was tuned with
+ * by hand; a properties file named by -Dgroup1.parameters overrides any of them, with the names of the
+ * getters without "get" as keys (e.g. hardheadedPercentage=0.1), so a configuration found by the
+ * tuner can be used without a rebuild. Instances are immutable: with returns a modified copy.
+ * Values outside the range of a parameter are rejected when set, so a bad file makes load fall back
+ * to the defaults rather than the agent failing in the middle of a session.
+ */
+public class StrategyParameters {
+
+    // Names of all parameters, in the order they are listed
+    public static final String[] NAMES = {
+            "hardheadedPercentage", "minimumStartingTargetUtility", "earlyConcedingFactor", "concedingFactor",
+            "hardheadedConcedingFactor", "concedingFactorSwitchTime", "hardheadednessThreshold", "hardheadednessTurns",
+            "closingAcceptanceMargin", "biddingMode", "maxBestBidsBufferSize", "amountOfTopBidsToOffer",
+            "paretoFrontierCapacity", "paretoFrontierSamplesPerRound", "maxBranchAndBoundNodes", "computeBudgetFraction",
+            "minBidsToGenerate", "maxBidsToGeneratePerCore", "maxRoundsBetweenNashProductUpdates",
+            "estimationTimeBudgetMs", "streamingEstimationRankingSize"
+    };
+
+    // The percentage of the time during which the agent will only offer the maximum utility.
+    private double hardheadedPercentage = 0.2;
+
+    // The target utility at the start of the concession, which it concedes from as time runs out.
+    private double minimumStartingTargetUtility = 0.85;
+
+    // The conceding factors: before the switch time, after it, and after it against a hard headed opponent.
+    // The higher the factor, the slower the target utility drops.
+    private double earlyConcedingFactor = 13;
+    private double concedingFactor = 10;
+    private double hardheadedConcedingFactor = 7;
+    private double concedingFactorSwitchTime = 0.9;
+
+    // An opponent is hard headed when its hardheadedness over this many bids (at most 100) is above the threshold.
+    private double hardheadednessThreshold = 0.6;
+    private int hardheadednessTurns = 10;
+
+    // An offer every other party agreed to is accepted up to this much below the target utility, as accepting it ends the negotiation.
+    private double closingAcceptanceMargin = 0.05;
+
+    // How the bid offered above the target utility is chosen.
+    private BiddingMode biddingMode = BiddingMode.FRONTIER;
+
+    // The maximum amount of bids the agent saves in the SAMPLING bidding mode, and the number of best saved bids
+    // one of which is offered once the buffer is full.
+    private int maxBestBidsBufferSize = 100;
+    private int amountOfTopBidsToOffer = 5;
+
+    // The maximum amount of bids kept on the Pareto frontier, and the number of random bids added to it each round.
+    private int paretoFrontierCapacity = 256;
+    private int paretoFrontierSamplesPerRound = 32;
+
+    // The maximum amount of partial bids visited by the branch and bound search each round, in the EXACT bidding mode.
+    private long maxBranchAndBoundNodes = 1000000;
+
+    // The fraction of the remaining time a round of bidding may use; the budget shrinks towards the deadline.
+    private double computeBudgetFraction = 0.001;
+
+    // The number of bids generated each round however little time is left, and per core however much time
+    // is left (and at most 4 per possible bid).
+    private int minBidsToGenerate = 16;
+    private int maxBidsToGeneratePerCore = 2000;
+
+    // The longest number of rounds between recalculating the nash product of the best saved bids.
+    private int maxRoundsBetweenNashProductUpdates = 100;
+
+    // The wall-clock time (ms) the estimation of the utility space may take in the background.
+    private long estimationTimeBudgetMs = 5000;
+
+    // Rankings of at least this many bids are estimated by the streaming learner rather than the linear program.
+    private int streamingEstimationRankingSize = 2000;
+
+    /**
+     * @return the defaults, overridden by the file set by -Dgroup1.parameters if any
+     */
+    public static StrategyParameters load() {
+
+        StrategyParameters parameters = new StrategyParameters();
+        String path = System.getProperty("group1.parameters");
+
+        if (path == null)
+            return parameters;
+
+        Properties properties = new Properties();
+
+        try (InputStream input = new FileInputStream(new File(path))) {
+            properties.load(input);
+            return parameters.with(properties);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace(); // negotiate with the defaults
+            return parameters;
+        }
+    }
+
+    /**
+     * @return a copy with every parameter in the properties set; other keys are not allowed
+     */
+    public StrategyParameters with(Properties properties) {
+
+        StrategyParameters parameters = this;
+
+        for (String name : properties.stringPropertyNames()) { parameters = parameters.with(name, properties.getProperty(name)); }
+        return parameters;
+    }
+
+    /**
+     * @param name The name of a parameter, one of NAMES
+     * @param value The value, as written in a properties file
+     * @return a copy with the parameter set
+     * @throws IllegalArgumentException for an unknown name, or a value that does not parse or is out of range
+     */
+    public StrategyParameters with(String name, String value) {
+
+        StrategyParameters parameters = copy();
+        value = value.trim();
+
+        switch (name) {
+            case "hardheadedPercentage": parameters.hardheadedPercentage = parseDouble(name, value, 0.0, 1.0); break;
+            case "minimumStartingTargetUtility": parameters.minimumStartingTargetUtility = parseDouble(name, value, 0.0, 1.0); break;
+            case "earlyConcedingFactor": parameters.earlyConcedingFactor = parseDouble(name, value, Double.MIN_VALUE, Double.MAX_VALUE); break;
+            case "concedingFactor": parameters.concedingFactor = parseDouble(name, value, Double.MIN_VALUE, Double.MAX_VALUE); break;
+            case "hardheadedConcedingFactor": parameters.hardheadedConcedingFactor = parseDouble(name, value, Double.MIN_VALUE, Double.MAX_VALUE); break;
+            case "concedingFactorSwitchTime": parameters.concedingFactorSwitchTime = parseDouble(name, value, 0.0, 1.0); break;
+            case "hardheadednessThreshold": parameters.hardheadednessThreshold = parseDouble(name, value, 0.0, 1.0); break;
+            case "hardheadednessTurns": parameters.hardheadednessTurns = (int) parseLong(name, value, 1, OpponentModel.MAX_HARDHEADEDNESS_WINDOW); break;
+            case "closingAcceptanceMargin": parameters.closingAcceptanceMargin = parseDouble(name, value, 0.0, 1.0); break;
+            case "biddingMode": parameters.biddingMode = BiddingMode.valueOf(value); break;
+            case "maxBestBidsBufferSize": parameters.maxBestBidsBufferSize = (int) parseLong(name, value, 1, Integer.MAX_VALUE); break;
+            case "amountOfTopBidsToOffer": parameters.amountOfTopBidsToOffer = (int) parseLong(name, value, 1, Integer.MAX_VALUE); break;
+            case "paretoFrontierCapacity": parameters.paretoFrontierCapacity = (int) parseLong(name, value, 2, Integer.MAX_VALUE); break;
+            case "paretoFrontierSamplesPerRound": parameters.paretoFrontierSamplesPerRound = (int) parseLong(name, value, 1, Integer.MAX_VALUE); break;
+            case "maxBranchAndBoundNodes": parameters.maxBranchAndBoundNodes = parseLong(name, value, 1, Long.MAX_VALUE); break;
+            case "computeBudgetFraction": parameters.computeBudgetFraction = parseDouble(name, value, Double.MIN_VALUE, 1.0); break;
+            case "minBidsToGenerate": parameters.minBidsToGenerate = (int) parseLong(name, value, 1, Integer.MAX_VALUE); break;
+            case "maxBidsToGeneratePerCore": parameters.maxBidsToGeneratePerCore = (int) parseLong(name, value, 1, Integer.MAX_VALUE); break;
+            case "maxRoundsBetweenNashProductUpdates": parameters.maxRoundsBetweenNashProductUpdates = (int) parseLong(name, value, 1, Integer.MAX_VALUE); break;
+            case "estimationTimeBudgetMs": parameters.estimationTimeBudgetMs = parseLong(name, value, 1, Long.MAX_VALUE / 1000000L); break;
+            case "streamingEstimationRankingSize": parameters.streamingEstimationRankingSize = (int) parseLong(name, value, 0, Integer.MAX_VALUE); break;
+            default: throw new IllegalArgumentException("Unknown parameter: " + name);
+        }
+        return parameters;
+    }
+
+    private static double parseDouble(String name, String value, double min, double max) {
+
+        double parsed = Double.parseDouble(value);
+
+        if (!(parsed >= min && parsed <= max)) // also rejects NaN
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + max + ": " + value);
+
+        return parsed;
+    }
+
+    private static long parseLong(String name, String value, long min, long max) {
+
+        long parsed = Long.parseLong(value);
+
+        if (parsed < min || parsed > max)
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + max + ": " + value);
+
+        return parsed;
+    }
+
+    /**
+     * @param name The name of a parameter, one of NAMES
+     * @return its value, as written in a properties file
+     */
+    public String get(String name) {
+
+        switch (name) {
+            case "hardheadedPercentage": return String.valueOf(this.hardheadedPercentage);
+            case "minimumStartingTargetUtility": return String.valueOf(this.minimumStartingTargetUtility);
+            case "earlyConcedingFactor": return String.valueOf(this.earlyConcedingFactor);
+            case "concedingFactor": return String.valueOf(this.concedingFactor);
+            case "hardheadedConcedingFactor": return String.valueOf(this.hardheadedConcedingFactor);
+            case "concedingFactorSwitchTime": return String.valueOf(this.concedingFactorSwitchTime);
+            case "hardheadednessThreshold": return String.valueOf(this.hardheadednessThreshold);
+            case "hardheadednessTurns": return String.valueOf(this.hardheadednessTurns);
+            case "closingAcceptanceMargin": return String.valueOf(this.closingAcceptanceMargin);
+            case "biddingMode": return this.biddingMode.name();
+            case "maxBestBidsBufferSize": return String.valueOf(this.maxBestBidsBufferSize);
+            case "amountOfTopBidsToOffer": return String.valueOf(this.amountOfTopBidsToOffer);
+            case "paretoFrontierCapacity": return String.valueOf(this.paretoFrontierCapacity);
+            case "paretoFrontierSamplesPerRound": return String.valueOf(this.paretoFrontierSamplesPerRound);
+            case "maxBranchAndBoundNodes": return String.valueOf(this.maxBranchAndBoundNodes);
+            case "computeBudgetFraction": return String.valueOf(this.computeBudgetFraction);
+            case "minBidsToGenerate": return String.valueOf(this.minBidsToGenerate);
+            case "maxBidsToGeneratePerCore": return String.valueOf(this.maxBidsToGeneratePerCore);
+            case "maxRoundsBetweenNashProductUpdates": return String.valueOf(this.maxRoundsBetweenNashProductUpdates);
+            case "estimationTimeBudgetMs": return String.valueOf(this.estimationTimeBudgetMs);
+            case "streamingEstimationRankingSize": return String.valueOf(this.streamingEstimationRankingSize);
+            default: throw new IllegalArgumentException("Unknown parameter: " + name);
+        }
+    }
+
+    /**
+     * @return all parameters, in the format load reads
+     */
+    public Properties toProperties() {
+
+        Properties properties = new Properties();
+        for (String name : NAMES) { properties.setProperty(name, get(name)); }
+        return properties;
+    }
+
+    private StrategyParameters copy() {
+
+        StrategyParameters parameters = new StrategyParameters();
+        parameters.hardheadedPercentage = this.hardheadedPercentage;
+        parameters.minimumStartingTargetUtility = this.minimumStartingTargetUtility;
+        parameters.earlyConcedingFactor = this.earlyConcedingFactor;
+        parameters.concedingFactor = this.concedingFactor;
+        parameters.hardheadedConcedingFactor = this.hardheadedConcedingFactor;
+        parameters.concedingFactorSwitchTime = this.concedingFactorSwitchTime;
+        parameters.hardheadednessThreshold = this.hardheadednessThreshold;
+        parameters.hardheadednessTurns = this.hardheadednessTurns;
+        parameters.closingAcceptanceMargin = this.closingAcceptanceMargin;
+        parameters.biddingMode = this.biddingMode;
+        parameters.maxBestBidsBufferSize = this.maxBestBidsBufferSize;
+        parameters.amountOfTopBidsToOffer = this.amountOfTopBidsToOffer;
+        parameters.paretoFrontierCapacity = this.paretoFrontierCapacity;
+        parameters.paretoFrontierSamplesPerRound = this.paretoFrontierSamplesPerRound;
+        parameters.maxBranchAndBoundNodes = this.maxBranchAndBoundNodes;
+        parameters.computeBudgetFraction = this.computeBudgetFraction;
+        parameters.minBidsToGenerate = this.minBidsToGenerate;
+        parameters.maxBidsToGeneratePerCore = this.maxBidsToGeneratePerCore;
+        parameters.maxRoundsBetweenNashProductUpdates = this.maxRoundsBetweenNashProductUpdates;
+        parameters.estimationTimeBudgetMs = this.estimationTimeBudgetMs;
+        parameters.streamingEstimationRankingSize = this.streamingEstimationRankingSize;
+        return parameters;
+    }
+
+    public double getHardheadedPercentage() { return this.hardheadedPercentage; }
+
+    public double getMinimumStartingTargetUtility() { return this.minimumStartingTargetUtility; }
+
+    public double getEarlyConcedingFactor() { return this.earlyConcedingFactor; }
+
+    public double getConcedingFactor() { return this.concedingFactor; }
+
+    public double getHardheadedConcedingFactor() { return this.hardheadedConcedingFactor; }
+
+    public double getConcedingFactorSwitchTime() { return this.concedingFactorSwitchTime; }
+
+    public double getHardheadednessThreshold() { return this.hardheadednessThreshold; }
+
+    public int getHardheadednessTurns() { return this.hardheadednessTurns; }
+
+    public double getClosingAcceptanceMargin() { return this.closingAcceptanceMargin; }
+
+    public BiddingMode getBiddingMode() { return this.biddingMode; }
+
+    public int getMaxBestBidsBufferSize() { return this.maxBestBidsBufferSize; }
+
+    public int getAmountOfTopBidsToOffer() { return this.amountOfTopBidsToOffer; }
+
+    public int getParetoFrontierCapacity() { return this.paretoFrontierCapacity; }
+
+    public int getParetoFrontierSamplesPerRound() { return this.paretoFrontierSamplesPerRound; }
+
+    public long getMaxBranchAndBoundNodes() { return this.maxBranchAndBoundNodes; }
+
+    public double getComputeBudgetFraction() { return this.computeBudgetFraction; }
+
+    public int getMinBidsToGenerate() { return this.minBidsToGenerate; }
+
+    public int getMaxBidsToGeneratePerCore() { return this.maxBidsToGeneratePerCore; }
+
+    public int getMaxRoundsBetweenNashProductUpdates() { return this.maxRoundsBetweenNashProductUpdates; }
+
+    public long getEstimationTimeBudgetMs() { return this.estimationTimeBudgetMs; }
+
+    public int getStreamingEstimationRankingSize() { return this.streamingEstimationRankingSize; }
+
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+        for (String name : NAMES) { builder.append(builder.length() == 0 ? "" : " ").append(name).append('=').append(get(name)); }
+        return builder.toString();
+    }
+}
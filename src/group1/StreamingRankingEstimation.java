@@ -0,0 +1,176 @@
+package group1;
+
+import genius.core.Domain;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.uncertainty.BidRanking;
+
+import java.util.Random;
+
+/**
+ * Estimates the utility space by learning the value utilities directly from the pairwise comparisons,
+ * as a fast alternative to solving the linear program of LinearProgrammingEstimation.
+ *
+ * An averaged margin perceptron runs over the one-hot value encoding: every comparison whose higher
+ * bid does not beat the lower bid by the margin moves the utilities of the differing values towards it.
+ * The comparisons are taken from the same sparse rows as the linear program, so an epoch costs time
+ * linear in the ranking size. Training stops after a fixed number of epochs, when an epoch makes
+ * no mistakes, or when the time budget runs out, whichever comes first.
+ */
+public class StreamingRankingEstimation implements UtilityEstimation {
+
+    private static final double MARGIN = 1.0; // utility difference a comparison has to be learnt with
+    private static final int DEFAULT_MAX_EPOCHS = 50;
+    private static final long DEFAULT_TIME_BUDGET_MILLIS = 1000;
+
+    private BidRanking bidRanking;
+    private Domain domain;
+    private BidEncoder encoder;
+    private RankingLinearProgram problem;
+
+    private int maxEpochs;
+    private long timeBudgetNanos;
+    private Random random;
+
+    private double[] weights; // current utility of every value, indexed like a flat UtilityTable
+    private double[] weightedUpdates; // every update times the number of comparisons seen before it, for the average
+    private long step; // number of comparisons seen so far
+
+    public StreamingRankingEstimation(Domain domain, BidRanking bids) {
+        this(domain, bids, DEFAULT_MAX_EPOCHS, DEFAULT_TIME_BUDGET_MILLIS);
+    }
+
+    public StreamingRankingEstimation(Domain domain, BidRanking bids, int maxEpochs, long timeBudgetMillis) {
+
+        this.bidRanking = bids;
+        this.domain = domain;
+        this.encoder = new BidEncoder(domain);
+        this.maxEpochs = maxEpochs;
+        this.timeBudgetNanos = timeBudgetMillis * 1000000L;
+        this.random = new Random(0);
+        this.weights = new double[this.encoder.getTotalValues()];
+        this.weightedUpdates = new double[this.encoder.getTotalValues()];
+    }
+
+    @Override
+    public AdditiveUtilitySpaceFactory Estimation() {
+
+        if (this.problem == null)
+            this.problem = RankingLinearProgram.fromBidRanking(this.encoder, this.bidRanking);
+
+        train();
+
+        AdditiveUtilitySpaceFactory additiveUtilitySpaceFactory = new AdditiveUtilitySpaceFactory(this.domain);
+        getUtilityTable().writeTo(additiveUtilitySpaceFactory);
+        return additiveUtilitySpaceFactory;
+    }
+
+    /**
+     * Continue training from the current utilities with the comparisons the ranking gained.
+     */
+    @Override
+    public AdditiveUtilitySpaceFactory Estimation(BidRanking bids) {
+
+        this.bidRanking = bids;
+
+        if (this.problem != null)
+            this.problem.addComparisons(this.bidRanking);
+
+        return Estimation();
+    }
+
+    /**
+     * Run epochs over the comparisons in a random order until an epoch makes no mistakes,
+     * or the epoch or time budget is used up.
+     */
+    private void train() {
+
+        long deadline = System.nanoTime() + this.timeBudgetNanos;
+        int comparisonCount = this.problem.getComparisonCount();
+        int[] order = new int[comparisonCount];
+
+        for (int j = 0; j < comparisonCount; j++) { order[j] = j; }
+
+        for (int epoch = 0; epoch < this.maxEpochs && System.nanoTime() < deadline; epoch++) {
+            shuffle(order);
+            int mistakes = 0;
+
+            for (int j = 0; j < comparisonCount; j++) {
+                if (learn(order[j])) { mistakes++; }
+                this.step++;
+            }
+
+            if (mistakes == 0) { break; }
+        }
+    }
+
+    /**
+     * Update the utilities on a single comparison.
+     *
+     * @return whether the comparison violated the margin
+     */
+    private boolean learn(int comparison) {
+
+        int start = this.problem.getRowStart(comparison);
+        int end = this.problem.getRowEnd(comparison);
+
+        if (start == end) { return false; } // the same bid on both sides
+
+        double difference = 0.0;
+
+        for (int k = start; k < end; k++) {
+            difference += this.problem.getCoefficient(k) * this.weights[this.problem.getColumn(k)];
+        }
+
+        if (difference >= MARGIN) { return false; }
+
+        for (int k = start; k < end; k++) {
+            int column = this.problem.getColumn(k);
+            double coefficient = this.problem.getCoefficient(k);
+            this.weights[column] += coefficient;
+            this.weightedUpdates[column] += this.step * coefficient;
+        }
+        return true;
+    }
+
+    private void shuffle(int[] order) {
+
+        for (int j = order.length - 1; j > 0; j--) {
+            int other = this.random.nextInt(j + 1);
+            int swap = order[j];
+            order[j] = order[other];
+            order[other] = swap;
+        }
+    }
+
+    /**
+     * The averaged utilities, shifted per issue so that the worst value of every issue is zero.
+     * Shifting an issue changes the utility of every bid by the same amount, so the ranking is kept.
+     *
+     * @return the learnt (unnormalised) value utilities
+     */
+    public UtilityTable getUtilityTable() {
+
+        UtilityTable utilityTable = new UtilityTable(this.encoder);
+
+        for (int i = 0; i < this.encoder.getIssueCount(); i++) {
+            int offset = this.encoder.getOffset(i);
+            double min = Double.POSITIVE_INFINITY;
+
+            for (int j = 0; j < this.encoder.getValueCount(i); j++) {
+                min = Math.min(min, getAveragedWeight(offset + j));
+            }
+
+            for (int j = 0; j < this.encoder.getValueCount(i); j++) {
+                utilityTable.set(i, j, getAveragedWeight(offset + j) - min);
+            }
+        }
+        return utilityTable;
+    }
+
+    private double getAveragedWeight(int column) {
+
+        if (this.step == 0) { return this.weights[column]; }
+
+        return this.weights[column] - this.weightedUpdates[column] / this.step;
+    }
+}
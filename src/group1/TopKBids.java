@@ -0,0 +1,210 @@
+package group1;
+
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bounded collection of the K encoded bids with the highest key (the Nash product).
+ *
+ * The bids are kept in a min-heap on primitive arrays, so the worst bid is at the root: inserting
+ * costs O(log K) and evicting the worst bid O(1). Next to the heap a small sorted array caches
+ * the best N bids, so a bid can be sampled from the top without sorting the heap; an insertion
+ * updates it in O(N), and it is only rebuilt from the whole heap when the keys are rescored.
+ */
+public class TopKBids {
+
+    private int capacity; // K
+    private int issueCount;
+    private int size;
+    private double[] keys; // heap of keys, keys[0] is the lowest
+    private int[] bids; // bid of heap position p at p * issueCount .. (p + 1) * issueCount
+
+    private int topCapacity; // N
+    private int topSize;
+    private double[] topKeys; // the N highest keys, in descending order
+    private int[] topBids; // their bids, laid out like the heap
+
+    public TopKBids(int capacity, int topCapacity, int issueCount) {
+
+        if (capacity < 1 || topCapacity < 1)
+            throw new IllegalArgumentException("Capacities must be positive: " + capacity + ", " + topCapacity);
+
+        this.capacity = capacity;
+        this.issueCount = issueCount;
+        this.keys = new double[capacity];
+        this.bids = new int[capacity * issueCount];
+
+        this.topCapacity = Math.min(topCapacity, capacity);
+        this.topKeys = new double[this.topCapacity];
+        this.topBids = new int[this.topCapacity * issueCount];
+    }
+
+    /**
+     * @return the number of bids held
+     */
+    public int size() { return this.size; }
+
+    /**
+     * @return whether K bids are held, so that an insertion evicts the worst one
+     */
+    public boolean isFull() { return this.size == this.capacity; }
+
+    /**
+     * @return the lowest key held, the key a new bid has to beat once full
+     */
+    public double getWorstKey() {
+
+        if (this.size == 0)
+            throw new IllegalStateException("No bids held");
+
+        return this.keys[0];
+    }
+
+    /**
+     * @return the highest key held
+     */
+    public double getBestKey() {
+
+        if (this.size == 0)
+            throw new IllegalStateException("No bids held");
+
+        return this.topKeys[0];
+    }
+
+    /**
+     * Insert a bid, evicting the worst bid when full. The bid is copied.
+     *
+     * @param bid The encoded bid
+     * @param key Its key
+     * @return whether the bid was inserted, i.e. whether it was not worse than every bid held
+     */
+    public boolean offer(int[] bid, double key) {
+
+        if (this.size < this.capacity) {
+            System.arraycopy(bid, 0, this.bids, this.size * this.issueCount, this.issueCount);
+            this.keys[this.size] = key;
+            siftUp(this.size++);
+        } else if (key > this.keys[0]) {
+            System.arraycopy(bid, 0, this.bids, 0, this.issueCount);
+            this.keys[0] = key;
+            siftDown(0);
+        } else {
+            return false;
+        }
+
+        offerTop(bid, key);
+        return true;
+    }
+
+    /**
+     * Recompute every key, e.g. after the opponent model changed, and restore the heap and the top N.
+     *
+     * @param score Computes the new key of an encoded bid
+     */
+    public void rescore(ToDoubleFunction<int[]> score) {
+
+        int[] bid = new int[this.issueCount];
+
+        for (int p = 0; p < this.size; p++) {
+            System.arraycopy(this.bids, p * this.issueCount, bid, 0, this.issueCount);
+            this.keys[p] = score.applyAsDouble(bid);
+        }
+
+        // Floyd's heap construction, linear in K
+        for (int p = this.size / 2 - 1; p >= 0; p--) {
+            siftDown(p);
+        }
+
+        this.topSize = 0;
+
+        for (int p = 0; p < this.size; p++) {
+            System.arraycopy(this.bids, p * this.issueCount, bid, 0, this.issueCount);
+            offerTop(bid, this.keys[p]);
+        }
+    }
+
+    /**
+     * Copy one of the N best bids, chosen uniformly, into the given array.
+     *
+     * @return whether a bid was copied, which is only not the case when no bids are held
+     */
+    public boolean sampleTop(SplittableRandom random, int[] bid) {
+
+        if (this.topSize == 0)
+            return false;
+
+        int index = random.nextInt(this.topSize);
+        System.arraycopy(this.topBids, index * this.issueCount, bid, 0, this.issueCount);
+        return true;
+    }
+
+    /**
+     * Insert a bid into the sorted top N if it belongs there.
+     */
+    private void offerTop(int[] bid, double key) {
+
+        if (this.topSize == this.topCapacity && key <= this.topKeys[this.topSize - 1])
+            return;
+
+        int position = Math.min(this.topSize, this.topCapacity - 1);
+
+        while (position > 0 && this.topKeys[position - 1] < key) {
+            this.topKeys[position] = this.topKeys[position - 1];
+            System.arraycopy(this.topBids, (position - 1) * this.issueCount, this.topBids, position * this.issueCount, this.issueCount);
+            position--;
+        }
+
+        this.topKeys[position] = key;
+        System.arraycopy(bid, 0, this.topBids, position * this.issueCount, this.issueCount);
+        this.topSize = Math.min(this.topSize + 1, this.topCapacity);
+    }
+
+    private void siftUp(int position) {
+
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+
+            if (this.keys[parent] <= this.keys[position])
+                return;
+
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+
+            if (left < this.size && this.keys[left] < this.keys[smallest])
+                smallest = left;
+            if (right < this.size && this.keys[right] < this.keys[smallest])
+                smallest = right;
+            if (smallest == position)
+                return;
+
+            swap(smallest, position);
+            position = smallest;
+        }
+    }
+
+    private void swap(int first, int second) {
+
+        double key = this.keys[first];
+        this.keys[first] = this.keys[second];
+        this.keys[second] = key;
+
+        int firstStart = first * this.issueCount;
+        int secondStart = second * this.issueCount;
+
+        for (int i = 0; i < this.issueCount; i++) {
+            int value = this.bids[firstStart + i];
+            this.bids[firstStart + i] = this.bids[secondStart + i];
+            this.bids[secondStart + i] = value;
+        }
+    }
+
+}
@@ -0,0 +1,355 @@
+package group1;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.Offer;
+import genius.core.timeline.TimeLineInfo;
+import genius.core.uncertainty.BidRanking;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records a negotiation session to a compact binary trace, so that it can be replayed offline:
+ * the messages received, the actions chosen with the target utility and a hash of the opponent models
+ * at that moment, and the installation of the estimated utility space, each stamped with the
+ * normalised time. The header holds what the agent is initialised from: the random seed, the deadline,
+ * a fingerprint of the domain, under preference uncertainty the bid ranking, the strategy parameters and
+ * the model store as read at the start, so that a replay neither depends on the parameter file nor on
+ * what other sessions have saved since.
+ *
+ * The negotiation thread only encodes a record into a preallocated staging buffer and copies it into a
+ * preallocated ring; a daemon thread drains the ring to the file through a FileChannel. When the ring is
+ * full the record is dropped (and counted) rather than waiting for the disk.
+ *
+ * Tracing is off unless -Dgroup1.trace names a directory, which receives one file per session.
+ *
+ * The format is big-endian. Header: magic "G1TR", version, seed (long), deadline type (byte, 0 for rounds),
+ * total time (double), issue count (int), domain fingerprint (long), ranking size (int), and when it is
+ * not 0 the ranking's low and high utility (doubles) and its bids from worst to best, each as one int per
+ * issue, parameter count (int) and per parameter its name and value (each a short length and UTF-8), model
+ * store size (int, 0 without a store) and the bytes of the store file. Records: type (byte), time (double), then per type the fields listed with the type constants.
+ */
+public class TraceRecorder {
+
+    public static final int MAGIC = 0x47315452; // "G1TR"
+    public static final int VERSION = 2;
+
+    public static final byte SENDER = 1; // index (int), name length (short), UTF-8 name; precedes a sender's first message
+    public static final byte RECEIVE_OFFER = 2; // sender index (int), bid (int per issue)
+    public static final byte RECEIVE_ACCEPT = 3; // sender index (int)
+    public static final byte RECEIVE_OTHER = 4; // sender index (int)
+    public static final byte CHOOSE_OFFER = 5; // target utility (double), opponent model hash (long), bid (int per issue)
+    public static final byte CHOOSE_ACCEPT = 6; // target utility (double), opponent model hash (long), bid (int per issue)
+    public static final byte ESTIMATE_INSTALLED = 7; // no fields
+    public static final int NO_SENDER = -1; // sender index of a message without sender
+
+    private static final int RING_BYTES = 1 << 20;
+    private static final int MAX_NAME_BYTES = 256; // longer sender names are cut
+    private static final long IDLE_PARK_NANOS = 1000000L; // writer sleep while the ring is empty
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private TimeLineInfo timeline;
+    private BidEncoder encoder;
+    private int[] encodedBid;
+    private ByteBuffer staging; // the record being written, copied into the ring when complete
+    private Map<AgentID, Integer> senderIndices;
+
+    private OpponentUtilities lastSnapshot; // the opponent utilities last hashed, and their hash
+    private long lastSnapshotHash;
+
+    private byte[] ring;
+    private volatile long head; // bytes written into the ring, by the negotiation thread
+    private volatile long tail; // bytes drained from the ring, by the writer
+    private volatile boolean closed;
+    private long droppedRecords;
+
+    private FileChannel channel;
+    private Thread writer;
+
+    private TraceRecorder(FileChannel channel, TimeLineInfo timeline, BidEncoder encoder) {
+
+        this.channel = channel;
+        this.timeline = timeline;
+        this.encoder = encoder;
+        this.encodedBid = new int[encoder.getIssueCount()];
+        this.staging = ByteBuffer.allocate(Math.max(64 + 4 * encoder.getIssueCount(), 16 + MAX_NAME_BYTES));
+        this.senderIndices = new HashMap<AgentID, Integer>();
+        this.ring = new byte[RING_BYTES];
+
+        this.writer = new Thread(this::drain, "group1-trace-writer");
+        this.writer.setDaemon(true); // never keep the negotiation process alive
+    }
+
+    /**
+     * @return the directory set by -Dgroup1.trace, or null when tracing is off
+     */
+    public static File getDefaultDirectory() {
+
+        String path = System.getProperty("group1.trace");
+        return path == null || path.isEmpty() ? null : new File(path);
+    }
+
+    /**
+     * Start tracing a session to a new file in the directory.
+     *
+     * @param directory The directory receiving the trace, null when tracing is off
+     * @param partyId The id of the agent, part of the file name
+     * @param seed The random seed the agent was initialised with
+     * @param timeline The timeline of the session
+     * @param encoder The encoder of the domain
+     * @param bidRanking The ranking of the user model, null without preference uncertainty
+     * @param parameters The strategy parameters of the agent
+     * @param modelStore The model store of the agent, null when persistence is off
+     * @return the recorder, or null when tracing is off or the file cannot be created
+     */
+    public static TraceRecorder open(File directory, AgentID partyId, long seed, TimeLineInfo timeline, BidEncoder encoder, BidRanking bidRanking,
+                                     StrategyParameters parameters, ModelStore modelStore) {
+
+        if (directory == null)
+            return null;
+
+        String name = "group1-" + System.currentTimeMillis() + "-" + String.valueOf(partyId).replaceAll("[^A-Za-z0-9_.-]", "_") + ".trace";
+
+        try {
+            directory.mkdirs();
+            FileChannel channel = FileChannel.open(new File(directory, name).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+            TraceRecorder recorder = new TraceRecorder(channel, timeline, encoder);
+            recorder.writeHeader(seed, bidRanking, parameters, modelStore);
+            recorder.writer.start();
+            return recorder;
+        } catch (IOException e) {
+            e.printStackTrace(); // negotiate without a trace
+            return null;
+        }
+    }
+
+    /**
+     * Write the header straight to the file, before the writer starts.
+     */
+    private void writeHeader(long seed, BidRanking bidRanking, StrategyParameters parameters, ModelStore modelStore) throws IOException {
+
+        int issueCount = this.encoder.getIssueCount();
+        int rankingSize = bidRanking == null ? 0 : bidRanking.getSize();
+        byte[][] parameterBytes = new byte[2 * StrategyParameters.NAMES.length][];
+        int parameterSize = 0;
+        for (int k = 0; k < StrategyParameters.NAMES.length; k++) {
+            parameterBytes[2 * k] = StrategyParameters.NAMES[k].getBytes(StandardCharsets.UTF_8);
+            parameterBytes[2 * k + 1] = parameters.get(StrategyParameters.NAMES[k]).getBytes(StandardCharsets.UTF_8);
+            parameterSize += 4 + parameterBytes[2 * k].length + parameterBytes[2 * k + 1].length;
+        }
+        ByteBuffer storeContents = modelStore == null ? ByteBuffer.allocate(0) : modelStore.getContents();
+
+        ByteBuffer header = ByteBuffer.allocate(41 + (rankingSize == 0 ? 0 : 16 + 4 * issueCount * rankingSize)
+                + 4 + parameterSize + 4 + storeContents.remaining());
+
+        header.putInt(MAGIC).putInt(VERSION).putLong(seed);
+        header.put((byte) (this.timeline.getType() == TimeLineInfo.Type.Time ? 1 : 0)).putDouble(this.timeline.getTotalTime());
+        header.putInt(issueCount).putLong(ModelStore.fingerprint(this.encoder)).putInt(rankingSize);
+
+        if (rankingSize > 0) {
+            header.putDouble(bidRanking.getLowUtility()).putDouble(bidRanking.getHighUtility());
+
+            for (Bid bid : bidRanking.getBidOrder()) {
+                this.encoder.encode(bid, this.encodedBid);
+                for (int value : this.encodedBid) { header.putInt(value); }
+            }
+        }
+
+        header.putInt(StrategyParameters.NAMES.length);
+        for (byte[] bytes : parameterBytes) { header.putShort((short) bytes.length).put(bytes); }
+        header.putInt(storeContents.remaining()).put(storeContents);
+        header.flip();
+
+        while (header.hasRemaining()) { this.channel.write(header); }
+    }
+
+    /**
+     * Record a message received from another party.
+     *
+     * @param time The normalised time the message arrived
+     */
+    public void recordReceive(double time, AgentID sender, Action action) {
+
+        int senderIndex = senderIndex(sender, time);
+
+        if (action instanceof Offer) {
+            begin(RECEIVE_OFFER, time).putInt(senderIndex);
+            putBid(((Offer) action).getBid());
+        } else {
+            begin(action instanceof Accept ? RECEIVE_ACCEPT : RECEIVE_OTHER, time).putInt(senderIndex);
+        }
+        commit();
+    }
+
+    /**
+     * Record the action chosen by the agent.
+     *
+     * @param time The normalised time the agent was asked for the action
+     * @param action The action, an offer or an accept
+     * @param bid The bid offered or accepted
+     * @param targetUtility The target utility the action was chosen with, the maximal utility while hardheaded
+     * @param opponentUtilities The snapshot of the opponent models the action was chosen with
+     */
+    public void recordChoice(double time, Action action, Bid bid, double targetUtility, OpponentUtilities opponentUtilities) {
+
+        begin(action instanceof Accept ? CHOOSE_ACCEPT : CHOOSE_OFFER, time).putDouble(targetUtility).putLong(hash(opponentUtilities));
+        putBid(bid);
+        commit();
+    }
+
+    /**
+     * Record that the estimated utility space replaced the rank-based estimate.
+     */
+    public void recordEstimateInstalled() {
+
+        begin(ESTIMATE_INSTALLED, this.timeline.getTime());
+        commit();
+    }
+
+    /**
+     * Stop recording: the writer drains the ring and closes the file. Waits briefly for the writer.
+     */
+    public void close() {
+
+        if (this.closed)
+            return;
+
+        this.closed = true;
+        LockSupport.unpark(this.writer);
+
+        try {
+            this.writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (this.droppedRecords > 0)
+            System.err.println("Trace dropped " + this.droppedRecords + " records: the ring was full");
+    }
+
+    /**
+     * The index of a sender, announcing it with a SENDER record the first time.
+     */
+    private int senderIndex(AgentID sender, double time) {
+
+        if (sender == null)
+            return NO_SENDER;
+
+        Integer index = this.senderIndices.get(sender);
+
+        if (index == null) {
+            index = this.senderIndices.size();
+            this.senderIndices.put(sender, index);
+
+            byte[] name = sender.getName().getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(name.length, MAX_NAME_BYTES);
+
+            begin(SENDER, time).putInt(index).putShort((short) length).put(name, 0, length);
+            commit();
+        }
+        return index;
+    }
+
+    /**
+     * Hash the utility tables of the opponent models; only recomputed when the snapshot changed.
+     */
+    private long hash(OpponentUtilities opponentUtilities) {
+
+        if (opponentUtilities == this.lastSnapshot)
+            return this.lastSnapshotHash;
+
+        long hash = FNV_OFFSET_BASIS;
+
+        for (int k = 0; k < opponentUtilities.size(); k++) {
+            for (double value : opponentUtilities.getTable(k).getValues()) {
+                hash = (hash ^ Double.doubleToLongBits(value)) * FNV_PRIME;
+            }
+        }
+        this.lastSnapshot = opponentUtilities;
+        this.lastSnapshotHash = hash;
+        return hash;
+    }
+
+    private ByteBuffer begin(byte type, double time) {
+
+        this.staging.clear();
+        return this.staging.put(type).putDouble(time);
+    }
+
+    private void putBid(Bid bid) {
+
+        this.encoder.encode(bid, this.encodedBid);
+        for (int value : this.encodedBid) { this.staging.putInt(value); }
+    }
+
+    /**
+     * Copy the staged record into the ring, wrapping around its end, or drop it when it does not fit.
+     */
+    private void commit() {
+
+        int length = this.staging.position();
+        long head = this.head;
+
+        if (this.closed || RING_BYTES - (head - this.tail) < length) {
+            this.droppedRecords++;
+            return;
+        }
+
+        int start = (int) (head % RING_BYTES);
+        int first = Math.min(length, RING_BYTES - start);
+
+        System.arraycopy(this.staging.array(), 0, this.ring, start, first);
+        System.arraycopy(this.staging.array(), first, this.ring, 0, length - first);
+        this.head = head + length; // publishes the record to the writer
+    }
+
+    /**
+     * Body of the writer thread: write whatever the ring holds, until closed and empty.
+     */
+    private void drain() {
+
+        try {
+            while (true) {
+                long head = this.head;
+                long tail = this.tail;
+
+                if (head == tail) {
+                    if (this.closed && this.head == tail)
+                        break;
+
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+
+                int start = (int) (tail % RING_BYTES);
+                int length = (int) Math.min(head - tail, RING_BYTES - start);
+                ByteBuffer slice = ByteBuffer.wrap(this.ring, start, length);
+
+                while (slice.hasRemaining()) { this.channel.write(slice); }
+                this.tail = tail + length;
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // the rest of the session is not traced
+        } finally {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package group1;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Draws random bids whose utility lies within a given band, without enumerating the outcome space.
+ * Relies on the additive structure of a utility table: the values of every issue are sorted by
+ * their contribution, and the remaining issues' minimal and maximal contributions bound which
+ * values can still lead to a bid inside the band. Memory use is proportional to the number of values.
+ */
+public class UtilityBandSampler {
+
+    private static final double EPSILON = 1e-12; // tolerance for rounding in the bound checks
+    private static final int MAX_ATTEMPTS = 100; // restarts allowed when a narrow band cannot be completed
+
+    private int issueCount;
+    private int[][] sortedValues; // per issue, the value indices in ascending order of contribution
+    private double[][] sortedUtilities; // per issue, the contributions in ascending order
+    private double[] suffixMin; // suffixMin[i]: minimal contribution of the issues i and above
+    private double[] suffixMax; // suffixMax[i]: maximal contribution of the issues i and above
+    private LongAdder attemptCount; // attempts made by all samples, from any thread
+
+    public UtilityBandSampler(UtilityTable table) {
+
+        BidEncoder encoder = table.getEncoder();
+
+        this.issueCount = encoder.getIssueCount();
+        this.sortedValues = new int[this.issueCount][];
+        this.sortedUtilities = new double[this.issueCount][];
+        this.suffixMin = new double[this.issueCount + 1];
+        this.suffixMax = new double[this.issueCount + 1];
+        this.attemptCount = new LongAdder();
+
+        for (int i = 0; i < this.issueCount; i++) {
+            int valueCount = encoder.getValueCount(i);
+            double[] utilities = new double[valueCount];
+
+            // Sort the value indices by contribution
+            for (int j = 0; j < valueCount; j++) { utilities[j] = table.get(i, j); }
+
+            Integer[] order = new Integer[valueCount];
+            for (int j = 0; j < valueCount; j++) { order[j] = j; }
+            Arrays.sort(order, (a, b) -> Double.compare(utilities[a], utilities[b]));
+
+            this.sortedValues[i] = new int[valueCount];
+            this.sortedUtilities[i] = new double[valueCount];
+
+            for (int j = 0; j < valueCount; j++) {
+                this.sortedValues[i][j] = order[j];
+                this.sortedUtilities[i][j] = utilities[order[j]];
+            }
+        }
+
+        for (int i = this.issueCount - 1; i >= 0; i--) {
+            double[] utilities = this.sortedUtilities[i];
+            this.suffixMin[i] = this.suffixMin[i + 1] + utilities[0];
+            this.suffixMax[i] = this.suffixMax[i + 1] + utilities[utilities.length - 1];
+        }
+    }
+
+    /**
+     * @return the lowest utility of any bid
+     */
+    public double getMinUtility() { return this.suffixMin[0]; }
+
+    /**
+     * @return the highest utility of any bid
+     */
+    public double getMaxUtility() { return this.suffixMax[0]; }
+
+    /**
+     * @return the number of attempts made by all samples so far; one per sample unless bids had to be redrawn
+     */
+    public long getAttemptCount() { return this.attemptCount.sum(); }
+
+    /**
+     * Draw a random bid with a utility between lower and upper (inclusive).
+     * A lower bound above the maximal utility is clamped, so that the best bid is returned instead.
+     *
+     * @param lower The lowest acceptable utility
+     * @param upper The highest acceptable utility
+     * @param random The source of randomness
+     * @param bid The array receiving the encoded bid
+     * @return whether a bid inside the band was found
+     */
+    public boolean sample(double lower, double upper, SplittableRandom random, int[] bid) {
+
+        lower = Math.min(lower, getMaxUtility()) - EPSILON;
+        upper = upper + EPSILON;
+
+        if (upper < getMinUtility()) { return false; }
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (tryComplete(lower, upper, random, bid)) {
+                this.attemptCount.add(attempt + 1);
+                return true;
+            }
+        }
+        this.attemptCount.add(MAX_ATTEMPTS);
+        return false;
+    }
+
+    /**
+     * Choose the issues' values one by one, each uniformly among the values that can still be
+     * completed into a bid inside the band. For a band reaching up to the maximal utility this never fails.
+     */
+    private boolean tryComplete(double lower, double upper, SplittableRandom random, int[] bid) {
+
+        double partial = 0.0;
+
+        for (int i = 0; i < this.issueCount; i++) {
+            double[] utilities = this.sortedUtilities[i];
+
+            // Feasible contributions c satisfy: lower <= partial + c + max(rest) and partial + c + min(rest) <= upper
+            int first = lowerBound(utilities, lower - partial - this.suffixMax[i + 1]);
+            int last = upperBound(utilities, upper - partial - this.suffixMin[i + 1]) - 1;
+
+            if (first > last) { return false; }
+
+            int chosen = first + random.nextInt(last - first + 1);
+            bid[i] = this.sortedValues[i][chosen];
+            partial += utilities[chosen];
+        }
+        return true;
+    }
+
+    /**
+     * @return the first index whose element is at least the key
+     */
+    private static int lowerBound(double[] sorted, double key) {
+
+        int low = 0;
+        int high = sorted.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key) { low = middle + 1; }
+            else { high = middle; }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first index whose element is above the key
+     */
+    private static int upperBound(double[] sorted, double key) {
+
+        int low = 0;
+        int high = sorted.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= key) { low = middle + 1; }
+            else { high = middle; }
+        }
+        return low;
+    }
+}
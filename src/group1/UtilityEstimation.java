@@ -0,0 +1,27 @@
+package group1;
+
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.uncertainty.BidRanking;
+
+/**
+ * Engine estimating an additive utility space from the bid ranking of the user model.
+ */
+public interface UtilityEstimation {
+
+    /**
+     * Estimate the utility space from the ranking given at construction.
+     *
+     * @return a new factory holding the estimated weights and utilities
+     */
+    AdditiveUtilitySpaceFactory Estimation() throws Exception;
+
+    /**
+     * Re-estimate after the ranking grew, reusing the previous estimation where possible.
+     * The result is written to a new factory: a utility space returned before may already be in use
+     * by the negotiation thread, so it is never modified.
+     *
+     * @param bids The grown ranking
+     * @return the factory holding the estimated weights and utilities
+     */
+    AdditiveUtilitySpaceFactory Estimation(BidRanking bids) throws Exception;
+}
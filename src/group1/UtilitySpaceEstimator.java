@@ -0,0 +1,181 @@
+package group1;
+
+import genius.core.Domain;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.uncertainty.BidRanking;
+import genius.core.utility.AbstractUtilitySpace;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Estimates the utility space from the bid ranking without blocking the negotiation.
+ * The cheap rank-based estimate is returned straight away, while the linear program is solved on a
+ * background thread; its result can be polled for and installed once ready. A solve that exceeds
+ * the wall-clock budget is cancelled and the rank-based estimate is kept.
+ * When the ranking grows the estimation is repeated incrementally, continuing from the previous solution.
+ * Large rankings are estimated by the streaming ranking learner instead of the linear program,
+ * as its cost grows linearly with the ranking size.
+ */
+public class UtilitySpaceEstimator {
+
+    private static final int STREAMING_MAX_EPOCHS = 50;
+
+    private long timeBudgetNanos; // wall-clock time the estimation may take
+    private int streamingRankingSize; // rankings of at least this size use the streaming learner
+    private ExecutorService executor;
+    private Future<AbstractUtilitySpace> pendingEstimation;
+    private long startNanos; // System.nanoTime() when the pending estimation started; cancelled after the budget
+    private UtilityEstimation utilityEstimation; // kept to re-estimate incrementally
+    private int rankingSize; // size of the ranking last estimated from
+
+    public UtilitySpaceEstimator(long timeBudgetMillis, int streamingRankingSize) {
+
+        this.timeBudgetNanos = timeBudgetMillis * 1000000L;
+        this.streamingRankingSize = streamingRankingSize;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "group1-utility-estimation");
+            thread.setDaemon(true); // never keep the negotiation process alive
+            return thread;
+        });
+    }
+
+    /**
+     * Start the estimation in the background: the linear program for small rankings,
+     * the streaming learner for large ones.
+     *
+     * @param domain The negotiation domain
+     * @param bidRanking The ranking given by the user model
+     * @return the rank-based estimate, to be used until the estimation is done
+     */
+    public AbstractUtilitySpace estimate(Domain domain, BidRanking bidRanking) {
+
+        UtilityEstimation utilityEstimation = createEstimation(domain, bidRanking);
+
+        this.utilityEstimation = utilityEstimation;
+        this.rankingSize = bidRanking.getSize();
+        this.startNanos = System.nanoTime();
+        this.pendingEstimation = this.executor.submit(() -> utilityEstimation.Estimation().getUtilitySpace());
+
+        AdditiveUtilitySpaceFactory additiveUtilitySpaceFactory = new AdditiveUtilitySpaceFactory(domain);
+        additiveUtilitySpaceFactory.estimateUsingBidRanks(bidRanking);
+        return additiveUtilitySpaceFactory.getUtilitySpace();
+    }
+
+    /**
+     * Start without estimating, for a ranking whose utility space is known already (from the model store):
+     * nothing is solved until the ranking grows, and then the grown ranking is estimated from scratch,
+     * as the known utility space gives the solver no starting point.
+     *
+     * @param domain The negotiation domain
+     * @param bidRanking The ranking given by the user model
+     */
+    public void skipEstimate(Domain domain, BidRanking bidRanking) {
+
+        this.utilityEstimation = createEstimation(domain, bidRanking);
+        this.rankingSize = bidRanking.getSize();
+    }
+
+    private UtilityEstimation createEstimation(Domain domain, BidRanking bidRanking) {
+
+        if (bidRanking.getSize() >= this.streamingRankingSize) {
+            // Stop learning well before the estimation would be cancelled
+            return new StreamingRankingEstimation(domain, bidRanking, STREAMING_MAX_EPOCHS, this.timeBudgetNanos / 2000000L);
+        }
+        return new LinearProgrammingEstimation(domain, bidRanking);
+    }
+
+    /**
+     * Check on the pending estimation, cancelling it when it ran out of time.
+     * The simplex solver stops at the interrupt, and the streaming learner stops at its own time budget.
+     *
+     * @return the estimated utility space the first time it is ready, null otherwise
+     */
+    public AbstractUtilitySpace poll() {
+
+        if (this.pendingEstimation == null)
+            return null;
+
+        if (!this.pendingEstimation.isDone()) {
+            if (System.nanoTime() - this.startNanos > this.timeBudgetNanos) {
+                this.pendingEstimation.cancel(true);
+                this.pendingEstimation = null;
+                this.utilityEstimation = null; // may still be running, so never reuse it
+            }
+            return null;
+        }
+
+        Future<AbstractUtilitySpace> done = this.pendingEstimation;
+        this.pendingEstimation = null;
+
+        try {
+            return done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace(); // keep the rank-based estimate
+        }
+        return null;
+    }
+
+    /**
+     * Wait for the pending estimation however long it takes, as a replay does where the recording installed it.
+     *
+     * @return the estimated utility space, null when no estimation is pending or it failed
+     */
+    public AbstractUtilitySpace await() {
+
+        if (this.pendingEstimation == null)
+            return null;
+
+        Future<AbstractUtilitySpace> pending = this.pendingEstimation;
+        this.pendingEstimation = null;
+
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace(); // keep the rank-based estimate
+        }
+        return null;
+    }
+
+    /**
+     * Re-estimate in the background when the ranking grew since the last estimation. The new
+     * comparisons are added to the existing program, so this costs a few pivots (or epochs) rather than a full solve.
+     * The result is picked up by poll like the first estimation.
+     *
+     * @param bidRanking The current ranking of the user model
+     */
+    public void update(BidRanking bidRanking) {
+
+        if (this.utilityEstimation == null || this.pendingEstimation != null || bidRanking.getSize() == this.rankingSize)
+            return;
+
+        UtilityEstimation utilityEstimation = this.utilityEstimation;
+
+        this.rankingSize = bidRanking.getSize();
+        this.startNanos = System.nanoTime();
+        this.pendingEstimation = this.executor.submit(() -> utilityEstimation.Estimation(bidRanking).getUtilitySpace());
+    }
+
+    /**
+     * @return whether an estimation is still running
+     */
+    public boolean isPending() { return this.pendingEstimation != null; }
+
+    /**
+     * Cancel any pending estimation and stop the background thread.
+     */
+    public void shutdown() {
+
+        if (this.pendingEstimation != null) {
+            this.pendingEstimation.cancel(true);
+            this.pendingEstimation = null;
+        }
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,111 @@
+package group1;
+
+import genius.core.issue.IssueDiscrete;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * Flat table holding the weighted utility contribution of every value of every issue.
+ * The utility of an encoded bid is the sum of one entry per issue.
+ */
+public class UtilityTable {
+
+    private BidEncoder encoder;
+    private double[] values; // weight * evaluation, indexed by issue offset + value index
+
+    public UtilityTable(BidEncoder encoder) {
+
+        this.encoder = encoder;
+        this.values = new double[encoder.getTotalValues()];
+    }
+
+    /**
+     * Build the table of an additive utility space.
+     *
+     * @param encoder The encoder of the domain of the utility space
+     * @param utilitySpace The utility space, which has to be additive
+     * @return the table giving the same (undiscounted) utilities as the utility space
+     */
+    public static UtilityTable fromUtilitySpace(BidEncoder encoder, AbstractUtilitySpace utilitySpace) {
+
+        if (!(utilitySpace instanceof AdditiveUtilitySpace))
+            throw new IllegalArgumentException("Utility space is not additive: " + utilitySpace);
+
+        AdditiveUtilitySpace additiveUtilitySpace = (AdditiveUtilitySpace) utilitySpace;
+        UtilityTable table = new UtilityTable(encoder);
+
+        for (int i = 0; i < encoder.getIssueCount(); i++) {
+            IssueDiscrete issue = encoder.getIssue(i);
+            double weight = additiveUtilitySpace.getWeight(issue.getNumber());
+            EvaluatorDiscrete evaluator = (EvaluatorDiscrete) additiveUtilitySpace.getEvaluator(issue.getNumber());
+
+            for (int j = 0; j < issue.getNumberOfValues(); j++) {
+                Double evaluation = evaluator.getEvaluation(issue.getValue(j));
+                table.set(i, j, evaluation == null ? 0.0 : weight * evaluation);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return the encoder the table is indexed by
+     */
+    public BidEncoder getEncoder() { return this.encoder; }
+
+    /**
+     * @return the flat table, indexed by issue offset + value index, for batch evaluation; not to be modified
+     */
+    public double[] getValues() { return this.values; }
+
+    /**
+     * Set the weighted utility of a value.
+     */
+    public void set(int issue, int value, double utility) { this.values[this.encoder.getOffset(issue) + value] = utility; }
+
+    /**
+     * @return the weighted utility of a value
+     */
+    public double get(int issue, int value) { return this.values[this.encoder.getOffset(issue) + value]; }
+
+    /**
+     * @param bid The encoded bid
+     * @return the utility of the bid
+     */
+    public double getUtility(int[] bid) {
+
+        double utility = 0.0;
+
+        for (int i = 0; i < bid.length; i++) {
+            utility += this.values[this.encoder.getOffset(i) + bid[i]];
+        }
+        return utility;
+    }
+
+    /**
+     * Write the table into a utility space factory: the weight of an issue is its highest value
+     * utility, every value is evaluated relative to it, and the weights are normalised.
+     * Negative entries are treated as zero.
+     *
+     * @param additiveUtilitySpaceFactory The factory of the domain of the table
+     */
+    public void writeTo(AdditiveUtilitySpaceFactory additiveUtilitySpaceFactory) {
+
+        for (int i = 0; i < this.encoder.getIssueCount(); i++) {
+            IssueDiscrete issue = this.encoder.getIssue(i);
+            double max = 0.0;
+
+            for (int j = 0; j < issue.getNumberOfValues(); j++) {
+                max = Math.max(max, get(i, j));
+            }
+
+            additiveUtilitySpaceFactory.setWeight(issue, max);
+
+            for (int j = 0; j < issue.getNumberOfValues(); j++) {
+                additiveUtilitySpaceFactory.setUtility(issue, issue.getValue(j), Math.max(0.0, get(i, j)));
+            }
+        }
+        additiveUtilitySpaceFactory.normalizeWeights();
+    }
+}